@@ -27,6 +27,7 @@ public class CompatActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_compat);
         RippleCompat.init(this);
+        RipplePalettes.install();
 
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
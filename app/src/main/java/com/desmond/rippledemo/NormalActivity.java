@@ -26,6 +26,7 @@ public class NormalActivity extends FragmentActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_normal);
         RippleCompat.init(this);
+        RipplePalettes.install();
 
         ViewPager viewPager = (ViewPager) findViewById(R.id.view_pager);
         viewPager.setAdapter(getAdapter());
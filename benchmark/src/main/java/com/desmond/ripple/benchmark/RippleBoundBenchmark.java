@@ -0,0 +1,73 @@
+package com.desmond.ripple.benchmark;
+
+import com.desmond.ripple.RippleMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image bound of every scale type, as computed when a background image is laid out in its view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RippleBoundBenchmark {
+    @Param({"MATRIX", "FIT_XY", "FIT_START", "FIT_CENTER", "FIT_END", "CENTER", "CENTER_CROP", "CENTER_INSIDE"})
+    public String scaleType;
+
+    /* image sizes, wider and taller than the container, and smaller than it. */
+    private static final int[] WIDTHS = {1920, 480, 96, 720};
+    private static final int[] HEIGHTS = {1080, 960, 64, 720};
+
+    private final int[] mBound = new int[4];
+    private int mScaleMode;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        mScaleMode = scaleModeOf(scaleType);
+    }
+
+    @Benchmark
+    public int getBound() {
+        int i = mIndex++ & 3;
+        RippleMath.getBound(mScaleMode, 0, 0, 540, 360, WIDTHS[i], HEIGHTS[i], mBound);
+        return mBound[0] + mBound[1] + mBound[2] + mBound[3];
+    }
+
+    static int scaleModeOf(String scaleType) {
+        switch (scaleType) {
+            case "MATRIX":
+                return RippleMath.MATRIX;
+            case "FIT_START":
+                return RippleMath.FIT_START;
+            case "FIT_CENTER":
+                return RippleMath.FIT_CENTER;
+            case "FIT_END":
+                return RippleMath.FIT_END;
+            case "CENTER":
+                return RippleMath.CENTER;
+            case "CENTER_CROP":
+                return RippleMath.CENTER_CROP;
+            case "CENTER_INSIDE":
+                return RippleMath.CENTER_INSIDE;
+            case "FIT_XY":
+            default:
+                return RippleMath.FIT_XY;
+        }
+    }
+}
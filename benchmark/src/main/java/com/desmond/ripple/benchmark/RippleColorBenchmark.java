@@ -0,0 +1,52 @@
+package com.desmond.ripple.benchmark;
+
+import com.desmond.ripple.RippleMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ripple color math, run when a ripple color is set and on every drawn frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RippleColorBenchmark {
+    private static final int COLOR_COUNT = 1024;
+
+    private final int[] mColors = new int[COLOR_COUNT];
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1121);
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            mColors[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public int produceBackgroundColor() {
+        return RippleMath.produceBackgroundColor(mColors[mIndex++ & (COLOR_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public int alphaColor() {
+        int i = mIndex++ & (COLOR_COUNT - 1);
+        return RippleMath.alphaColor(mColors[i], i & 0xff);
+    }
+}
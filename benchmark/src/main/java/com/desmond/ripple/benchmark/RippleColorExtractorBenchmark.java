@@ -0,0 +1,57 @@
+package com.desmond.ripple.benchmark;
+
+import com.desmond.ripple.RippleColorExtractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in palette extraction of a downsampled background, see {@code RippleUtil.getPaletteSampleSize()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RippleColorExtractorBenchmark {
+    @Param({"64", "128", "256"})
+    public int sampleSize;
+
+    private final RippleColorExtractor mExtractor = new RippleColorExtractor();
+    private final int[] mResult = new int[RippleColorExtractor.RESULT_SIZE];
+    private int[] mPixels;
+
+    @Setup
+    public void setUp() {
+        /* smooth gradients with noise, like a photo rather than random colors. */
+        Random random = new Random(1121);
+        mPixels = new int[sampleSize * sampleSize];
+        for (int y = 0; y < sampleSize; y++) {
+            for (int x = 0; x < sampleSize; x++) {
+                int r = Math.min(255, x * 255 / sampleSize + random.nextInt(16));
+                int g = Math.min(255, y * 255 / sampleSize + random.nextInt(16));
+                int b = Math.min(255, (x + y) * 127 / sampleSize + random.nextInt(16));
+                mPixels[y * sampleSize + x] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] extract() {
+        mExtractor.extract(mPixels, mPixels.length, 0xa000ff00, mResult);
+        return mResult;
+    }
+}
@@ -0,0 +1,116 @@
+package com.desmond.ripple.benchmark;
+
+import com.desmond.ripple.RippleFrameDispatcher;
+import com.desmond.ripple.RippleMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the frame dispatch shared by all running ripples, with N simulated ripples ticking the real
+ * per-frame math. Costs are per operation over all N ripples, divide by N for the cost per ripple; a cost
+ * per ripple growing with N is super-linear behavior.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RippleSchedulerBenchmark {
+    private static final int DURATION = 400;
+    private static final int FRAME_INTERVAL = 16;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int rippleCount;
+
+    private RippleFrameDispatcher mDispatcher;
+    private SimulatedRipple[] mRipples;
+    private long mFrameTime = 0;
+
+    @Setup
+    public void setUp() {
+        mDispatcher = new RippleFrameDispatcher();
+        mRipples = new SimulatedRipple[rippleCount];
+        for (int i = 0; i < rippleCount; i++) {
+            mRipples[i] = new SimulatedRipple();
+        }
+    }
+
+    /**
+     * One frame of N running ripples.
+     */
+    @Benchmark
+    public int tick() {
+        if (mDispatcher.isEmpty()) {
+            for (SimulatedRipple ripple : mRipples) {
+                ripple.start(mFrameTime, Integer.MAX_VALUE);
+                mDispatcher.register(ripple);
+            }
+        }
+        mFrameTime += FRAME_INTERVAL;
+        mDispatcher.dispatch(mFrameTime);
+        return mDispatcher.size();
+    }
+
+    /**
+     * A touch storm, N ripples start at once and finish on the next frame.
+     */
+    @Benchmark
+    public int startAndFinish() {
+        for (SimulatedRipple ripple : mRipples) {
+            ripple.start(mFrameTime, 1);
+            mDispatcher.register(ripple);
+        }
+        mFrameTime += FRAME_INTERVAL;
+        mDispatcher.dispatch(mFrameTime);
+        return mDispatcher.size();
+    }
+
+    /**
+     * N running ripples cancelled outside of a frame, like a screen of rippling views being detached.
+     */
+    @Benchmark
+    public int startAndCancel() {
+        for (SimulatedRipple ripple : mRipples) {
+            ripple.start(mFrameTime, Integer.MAX_VALUE);
+            mDispatcher.register(ripple);
+        }
+        for (SimulatedRipple ripple : mRipples) {
+            mDispatcher.unregister(ripple);
+        }
+        return mDispatcher.size();
+    }
+
+    private static final class SimulatedRipple implements RippleFrameDispatcher.Callback {
+        private long mStartTime;
+        private int mFramesLeft;
+        private float mScale;
+        private int mBackgroundAlpha;
+
+        private void start(long startTime, int frames) {
+            mStartTime = startTime;
+            mFramesLeft = frames;
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeMillis) {
+            long elapsed = RippleMath.pressedElapsed(frameTimeMillis - mStartTime) % DURATION;
+            float progress = RippleMath.progress(elapsed, DURATION);
+            mScale = RippleMath.rippleScale(600, 90, progress * progress);
+            mBackgroundAlpha = RippleMath.backgroundAlpha(0x70, progress);
+            return --mFramesLeft > 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.desmond.ripple.benchmark;
+
+import com.desmond.ripple.RippleMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame math of one ripple, as ticked by the drawable: pressed and released expansion, fading, and the
+ * touch bound check. Interpolators are Android classes, the accelerate curve is inlined here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RippleTickBenchmark {
+    private static final int DURATION = 400;
+    private static final int MAX_RADIUS = 600;
+    private static final int MIN_RADIUS = 90;
+
+    private long mElapsed = 0;
+    private long mElapsedOffset = 0;
+    private float mX = 0f;
+
+    @Benchmark
+    public void pressedTick(Blackhole blackhole) {
+        long elapsed = RippleMath.pressedElapsed(nextElapsed());
+        mElapsedOffset = RippleMath.pressedOffset(elapsed);
+        tick(elapsed, blackhole);
+    }
+
+    @Benchmark
+    public void releasedTick(Blackhole blackhole) {
+        tick(nextElapsed() - mElapsedOffset, blackhole);
+    }
+
+    @Benchmark
+    public int fadeTick() {
+        float progress = RippleMath.progress(nextElapsed(), DURATION);
+        return RippleMath.fadeAlpha(0xa0, accelerateDecelerate(progress));
+    }
+
+    @Benchmark
+    public boolean isInBound() {
+        mX = mX > 600f ? -60f : mX + 7.3f;
+        return RippleMath.isInBound(mX, mX * 0.5f, 0, 0, 540, 360);
+    }
+
+    private void tick(long elapsed, Blackhole blackhole) {
+        float progress = RippleMath.progress(elapsed, DURATION);
+        blackhole.consume(RippleMath.spinDegree(progress));
+        blackhole.consume(RippleMath.rippleScale(MAX_RADIUS, MIN_RADIUS, progress * progress));
+        blackhole.consume(RippleMath.backgroundAlpha(0x70, progress));
+    }
+
+    /* elapsed time of successive 60fps frames, restarting after the ripple. */
+    private long nextElapsed() {
+        mElapsed = mElapsed > DURATION * RippleMath.PRESSED_SLOWDOWN ? 0 : mElapsed + 16;
+        return mElapsed;
+    }
+
+    private static float accelerateDecelerate(float input) {
+        return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+    }
+}
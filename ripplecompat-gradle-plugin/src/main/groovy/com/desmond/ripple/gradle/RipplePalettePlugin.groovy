@@ -0,0 +1,32 @@
+package com.desmond.ripple.gradle
+
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+
+/**
+ * Precomputes palettes of an app's bitmap drawable resources at build time.
+ *
+ * Add {@code com.github.desmond1121:ripplecompat-gradle-plugin} to the buildscript classpath and apply it in
+ * an application module after the android plugin:
+ *
+ *     apply plugin: 'com.desmond.ripple.palette'
+ *
+ * and call {@code RipplePalettes.install()} after {@code RippleCompat.init(context)}. Colors are computed by
+ * the built-in extractor, so the table is only used by configs with
+ * {@code RippleConfig.setIsBuiltinPalette(true)}.
+ */
+class RipplePalettePlugin implements Plugin<Project> {
+
+    @Override
+    void apply(Project project) {
+        project.plugins.withId('com.android.application') {
+            project.android.applicationVariants.all { variant ->
+                def task = project.tasks.create("generate${variant.name.capitalize()}RipplePalettes", RipplePaletteTask)
+                task.resDirs = variant.sourceSets.collect { it.resDirectories }.flatten()
+                task.packageName = variant.generateBuildConfig.buildConfigPackageName
+                task.outputDir = project.file("${project.buildDir}/generated/source/ripplePalettes/${variant.dirName}")
+                variant.registerJavaGeneratingTask(task, task.outputDir)
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.desmond.ripple.gradle
+
+import com.desmond.ripple.RippleColorExtractor
+import org.gradle.api.DefaultTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.TaskAction
+
+import javax.imageio.ImageIO
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+
+/**
+ * Decodes bitmap drawables (png, jpg) of the given res directories on the JVM, extracts their swatch colors
+ * with {@link RippleColorExtractor} and writes a {@code RipplePalettes} class filling
+ * {@code com.desmond.ripple.RipplePaletteTable}.
+ *
+ * Nine-patches and xml drawables are skipped. A resource present in several densities is decoded from the
+ * largest image.
+ */
+class RipplePaletteTask extends DefaultTask {
+    /* keep in sync with RippleUtil.PALETTE_SAMPLE_SIZE and RippleUtil.RIPPLE_COLOR. */
+    static final int SAMPLE_SIZE = 128
+    static final int DEFAULT_COLOR = 0xa000ff00
+    static final int ENTRIES_PER_METHOD = 500
+
+    @InputFiles
+    List<File> resDirs = []
+
+    @Input
+    String packageName
+
+    @OutputDirectory
+    File outputDir
+
+    @TaskAction
+    void generate() {
+        Map<String, File> images = collectImages()
+        RippleColorExtractor extractor = new RippleColorExtractor()
+        Map<String, int[]> palettes = new TreeMap<>()
+        images.each { name, file ->
+            int[] colors = extract(extractor, file)
+            if (colors != null) palettes[name] = colors
+        }
+
+        File dir = new File(outputDir, packageName.replace('.', '/'))
+        dir.mkdirs()
+        new File(dir, 'RipplePalettes.java').text = render(palettes)
+        logger.info("RipplePaletteTask: precomputed ${palettes.size()} palettes")
+    }
+
+    private Map<String, File> collectImages() {
+        Map<String, File> images = [:]
+        Map<String, Long> sizes = [:]
+        resDirs.findAll { it.isDirectory() }.each { resDir ->
+            resDir.eachDir { dir ->
+                if (!dir.name.startsWith('drawable')) return
+                dir.eachFile { file ->
+                    String fileName = file.name.toLowerCase()
+                    if (fileName.endsWith('.9.png')) return
+                    if (!(fileName.endsWith('.png') || fileName.endsWith('.jpg') || fileName.endsWith('.jpeg'))) return
+                    String name = file.name.substring(0, file.name.indexOf('.'))
+                    long size = file.length()
+                    if (!images.containsKey(name) || size > sizes[name]) {
+                        images[name] = file
+                        sizes[name] = size
+                    }
+                }
+            }
+        }
+        return images
+    }
+
+    protected static int[] extract(RippleColorExtractor extractor, File file) {
+        BufferedImage image = ImageIO.read(file)
+        if (image == null) return null
+
+        float scale = Math.min(1f, SAMPLE_SIZE / (float) Math.max(image.width, image.height))
+        int w = Math.max(1, Math.round(image.width * scale))
+        int h = Math.max(1, Math.round(image.height * scale))
+        BufferedImage sample = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB)
+        def g = sample.createGraphics()
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR)
+        g.drawImage(image, 0, 0, w, h, null)
+        g.dispose()
+
+        int[] pixels = sample.getRGB(0, 0, w, h, null, 0, w)
+        return extractor.extract(pixels, pixels.length, DEFAULT_COLOR)
+    }
+
+    private String render(Map<String, int[]> palettes) {
+        StringBuilder sb = new StringBuilder()
+        sb << "package ${packageName};\n\n"
+        sb << "import com.desmond.ripple.RipplePaletteTable;\n\n"
+        sb << "/**\n * Generated by RipplePaletteTask, do not modify.\n */\n"
+        sb << "public final class RipplePalettes {\n"
+        sb << "    private RipplePalettes() {\n    }\n\n"
+
+        List<List<Map.Entry<String, int[]>>> chunks = palettes.entrySet().toList().collate(ENTRIES_PER_METHOD)
+        sb << "    public static void install() {\n"
+        chunks.eachWithIndex { chunk, i -> sb << "        install${i}();\n" }
+        sb << "    }\n"
+
+        chunks.eachWithIndex { chunk, i ->
+            sb << "\n    private static void install${i}() {\n"
+            chunk.each { entry ->
+                int[] c = entry.value
+                String colors = (RippleColorExtractor.VIBRANT..RippleColorExtractor.MUTED_DARK).collect {
+                    String.format('0x%08x', c[it])
+                }.join(', ')
+                sb << "        RipplePaletteTable.put(R.drawable.${entry.key}, ${colors});\n"
+            }
+            sb << "    }\n"
+        }
+        sb << "}\n"
+        return sb.toString()
+    }
+}
@@ -0,0 +1,90 @@
+package com.desmond.ripple.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.graphics.Palette;
+import android.util.Log;
+
+import com.desmond.ripple.RippleUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Built-in extractor against support Palette on the same downsampled background, as
+ * {@code RipplePaletteLoader} runs them: a photo-like image is sampled with
+ * {@link RippleUtil#sampleBitmap} and both produce colors of every palette mode from the sample.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RipplePaletteBenchmark {
+    private static final String TAG = "RipplePaletteBenchmark";
+    private static final int WARMUP_RUNS = 10;
+    private static final int RUNS = 30;
+    private static final int MIN_SPEEDUP = 5;
+
+    @Test
+    public void builtinExtractorIsFasterThanPalette() {
+        Bitmap image = createImage(1024, 768);
+        BitmapDrawable background = new BitmapDrawable(
+                InstrumentationRegistry.getTargetContext().getResources(), image);
+        Bitmap sample = RippleUtil.sampleBitmap(background, RippleUtil.getPaletteSampleSize());
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            RippleUtil.extractColors(sample);
+            RippleUtil.getPaletteColors(Palette.from(sample).generate());
+        }
+
+        long[] builtin = new long[RUNS];
+        long[] palette = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            /* interleaved, so both run under the same clock and thermal state. */
+            long start = System.nanoTime();
+            RippleUtil.extractColors(sample);
+            builtin[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            RippleUtil.getPaletteColors(Palette.from(sample).generate());
+            palette[i] = System.nanoTime() - start;
+        }
+        RippleUtil.releaseSampleBitmap(background, sample);
+        image.recycle();
+
+        long builtinMedian = median(builtin);
+        long paletteMedian = median(palette);
+        Log.i(TAG, "sample " + sample.getWidth() + "x" + sample.getHeight()
+                + ", builtin " + builtinMedian / 1000 + "us, palette " + paletteMedian / 1000
+                + "us, speedup " + (float) paletteMedian / builtinMedian + "x");
+        assertTrue("builtin " + builtinMedian + "ns, palette " + paletteMedian + "ns",
+                paletteMedian >= builtinMedian * MIN_SPEEDUP);
+    }
+
+    /**
+     * @return smooth gradients with noise, like a photo rather than random colors.
+     */
+    private static Bitmap createImage(int width, int height) {
+        Random random = new Random(1121);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = Math.min(255, x * 255 / width + random.nextInt(16));
+                int g = Math.min(255, y * 255 / height + random.nextInt(16));
+                int b = Math.min(255, (x + y) * 127 / Math.max(width, height) + random.nextInt(16));
+                pixels[y * width + x] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,114 @@
+package com.desmond.ripple.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.desmond.ripple.RippleCompatDrawable;
+import com.desmond.ripple.RippleConfig;
+import com.desmond.ripple.RippleManualFrameSource;
+import com.desmond.ripple.RippleSpriteFactory;
+import com.desmond.ripple.RippleUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Frame time of HEART and TRIANGLE ripples drawn from sprite masks against drawn from paths, on a software
+ * canvas where a path is rasterized again every frame. Every frame of whole press, release and fade cycles is
+ * timed, stepped by a {@link RippleManualFrameSource}. The visual cost of masks is logged too, see
+ * {@link RippleSpriteFactory#measureDifference}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RippleSpriteBenchmark {
+    private static final String TAG = "RippleSpriteBenchmark";
+    private static final int SIZE = 480;
+    private static final int WARMUP_CYCLES = 3;
+    private static final int CYCLES = 20;
+    private static final int PRESSED_FRAMES = 30;
+    /* a cycle fades out long before, guards against a ripple that never finishes. */
+    private static final int MAX_FRAMES = 1000;
+    private static final float[] SCALES = {1f, 2f, 4f, 8f, 16f};
+
+    @Test
+    public void heart() {
+        compare(RippleCompatDrawable.Type.HEART);
+    }
+
+    @Test
+    public void triangle() {
+        compare(RippleCompatDrawable.Type.TRIANGLE);
+    }
+
+    private void compare(RippleCompatDrawable.Type type) {
+        long pathNanos = measureFrameTime(type, false);
+        long spriteNanos = measureFrameTime(type, true);
+        Log.i(TAG, type + " frame: path " + pathNanos / 1000f + "us, sprite " + spriteNanos / 1000f
+                + "us, speedup " + (float) pathNanos / spriteNanos + "x");
+
+        for (float scale : SCALES) {
+            float difference = RippleSpriteFactory.measureDifference(type, scale);
+            Log.i(TAG, type + " difference at scale " + scale + ": " + difference);
+            assertTrue(difference <= 1f);
+        }
+    }
+
+    /**
+     * @return mean draw time per frame in nanoseconds.
+     */
+    private static long measureFrameTime(RippleCompatDrawable.Type type, boolean isSpriteMask) {
+        RippleManualFrameSource frames = new RippleManualFrameSource();
+        RippleConfig config = new RippleConfig();
+        config.setType(type);
+        config.setIsSpriteMask(isSpriteMask);
+        config.setFrameSource(frames);
+        RippleCompatDrawable drawable = new RippleCompatDrawable(config);
+        drawable.setBounds(0, 0, SIZE, SIZE);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        View host = new View(InstrumentationRegistry.getTargetContext());
+
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            runCycle(drawable, host, frames, canvas);
+        }
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < CYCLES; i++) {
+            long start = System.nanoTime();
+            count += runCycle(drawable, host, frames, canvas);
+            total += System.nanoTime() - start;
+        }
+        bitmap.recycle();
+        assertTrue(count > 0);
+        return total / count;
+    }
+
+    /**
+     * @return count of frames drawn.
+     */
+    private static int runCycle(RippleCompatDrawable drawable, View host, RippleManualFrameSource frames,
+                                Canvas canvas) {
+        MotionEvent event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, SIZE / 2, SIZE / 2, 0);
+        drawable.onTouch(host, event);
+        int count = 0;
+        for (; count < PRESSED_FRAMES; count++) {
+            frames.step(RippleUtil.FRAME_INTERVAL);
+            drawable.draw(canvas);
+        }
+        event.setAction(MotionEvent.ACTION_UP);
+        drawable.onTouch(host, event);
+        event.recycle();
+        while (drawable.isRunning() && count < MAX_FRAMES) {
+            frames.step(RippleUtil.FRAME_INTERVAL);
+            drawable.draw(canvas);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,64 @@
+package com.desmond.ripple.benchmark;
+
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.desmond.ripple.RippleCompatDrawable;
+import com.desmond.ripple.RippleConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap retained by 1,000 drawables of one {@link RippleConfig}, sharing its state against each holding its own
+ * state as before states were shared, made from a config of its own.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RippleStateBenchmark {
+    private static final String TAG = "RippleStateBenchmark";
+    private static final int COUNT = 1000;
+
+    @Test
+    public void sharedStateRetainsLessHeap() {
+        RippleConfig config = new RippleConfig();
+        /* state and shared shape are created once, outside of both measurements. */
+        new RippleCompatDrawable(config);
+
+        long[] shared = measure(config, false);
+        long[] copied = measure(null, true);
+        Log.i(TAG, COUNT + " drawables, shared state: java " + shared[0] / 1024 + "KB, native "
+                + shared[1] / 1024 + "KB; own state: java " + copied[0] / 1024 + "KB, native "
+                + copied[1] / 1024 + "KB");
+        assertTrue("shared " + shared[0] + "B, own " + copied[0] + "B", shared[0] < copied[0]);
+    }
+
+    /**
+     * @param config     config shared by drawables, ignored if isOwnState.
+     * @param isOwnState true to give each drawable a config, and so a state, of its own.
+     * @return java and native heap retained by COUNT drawables, in bytes.
+     */
+    private static long[] measure(RippleConfig config, boolean isOwnState) {
+        long javaBefore = usedJavaHeap();
+        long nativeBefore = Debug.getNativeHeapAllocatedSize();
+        RippleCompatDrawable[] drawables = new RippleCompatDrawable[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            drawables[i] = new RippleCompatDrawable(isOwnState ? new RippleConfig() : config);
+        }
+        long[] retained = {usedJavaHeap() - javaBefore, Debug.getNativeHeapAllocatedSize() - nativeBefore};
+        /* keep drawables reachable until measured. */
+        assertTrue(drawables[COUNT - 1] != null);
+        return retained;
+    }
+
+    private static long usedJavaHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
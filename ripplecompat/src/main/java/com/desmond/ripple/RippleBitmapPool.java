@@ -0,0 +1,49 @@
+package com.desmond.ripple;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+
+/**
+ * Small pool of ARGB_8888 bitmaps reused for palette sampling. Bitmaps are matched by exact size, the
+ * oldest pooled bitmap is dropped when the pool is full.
+ */
+class RippleBitmapPool {
+    private final int mMaxSize;
+    private final ArrayList<Bitmap> mPool = new ArrayList<>();
+
+    RippleBitmapPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Get a cleared bitmap of the given size, allocating one only if none is pooled.
+     */
+    synchronized Bitmap acquire(int width, int height) {
+        for (int i = mPool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = mPool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                mPool.remove(i);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Return a bitmap got from {@link #acquire(int, int)}, it must not be used by the caller anymore.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || mPool.contains(bitmap)) return;
+        if (mPool.size() >= mMaxSize) {
+            mPool.remove(0);
+        }
+        mPool.add(bitmap);
+    }
+
+    synchronized void clear() {
+        mPool.clear();
+    }
+}
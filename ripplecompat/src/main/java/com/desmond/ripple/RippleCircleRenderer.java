@@ -0,0 +1,27 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Renderer of {@link RippleCompatDrawable.Type#CIRCLE}, a primitive circle needs no path and no canvas
+ * transform.
+ */
+class RippleCircleRenderer implements RippleShapeRenderer {
+    static final RippleCircleRenderer INSTANCE = new RippleCircleRenderer();
+
+    private RippleCircleRenderer() {
+    }
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, float x, float y, float scale, float degree) {
+        canvas.drawCircle(x, y, RippleUtil.MIN_RIPPLE_RADIUS * scale, paint);
+    }
+
+    @Override
+    public void getBound(RectF outBound) {
+        outBound.set(-RippleUtil.MIN_RIPPLE_RADIUS, -RippleUtil.MIN_RIPPLE_RADIUS,
+                RippleUtil.MIN_RIPPLE_RADIUS, RippleUtil.MIN_RIPPLE_RADIUS);
+    }
+}
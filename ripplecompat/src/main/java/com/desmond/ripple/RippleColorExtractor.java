@@ -0,0 +1,175 @@
+package com.desmond.ripple;
+
+/**
+ * Lightweight dominant color extractor, an alternative to support Palette for ripple tinting.
+ * <p>
+ * Pixels are counted into a fixed histogram of 4096 buckets (4 bits per channel) and every target swatch is
+ * picked with the same saturation / luma scoring as Palette, so results stay close to Palette's. It works on
+ * primitive int pixel arrays only, allocates nothing per pixel and has no Android dependency.
+ * <p>
+ * Results are indexed like {@code RippleUtil.PaletteMode#ordinal()}, slot 0 ({@code DISABLED}) is unused.
+ * Instances are not thread safe.
+ */
+public class RippleColorExtractor {
+    public static final int VIBRANT = 1;
+    public static final int VIBRANT_LIGHT = 2;
+    public static final int VIBRANT_DARK = 3;
+    public static final int MUTED = 4;
+    public static final int MUTED_LIGHT = 5;
+    public static final int MUTED_DARK = 6;
+    public static final int RESULT_SIZE = 7;
+
+    private static final int BUCKET_BITS = 4;
+    private static final int BUCKET_COUNT = 1 << (BUCKET_BITS * 3);
+    private static final int MIN_ALPHA = 128;
+
+    private static final float MIN_LUMA = 0.05f;
+    private static final float MAX_LUMA = 0.95f;
+    private static final float WEIGHT_SATURATION = 3f;
+    private static final float WEIGHT_LUMA = 6.5f;
+    private static final float WEIGHT_POPULATION = 0.5f;
+
+    /* target ranges, indexed by result slot. */
+    private static final float[] MIN_TARGET_LUMA = {0f, 0.3f, 0.55f, 0f, 0.3f, 0.55f, 0f};
+    private static final float[] TARGET_LUMA = {0f, 0.5f, 0.74f, 0.26f, 0.5f, 0.74f, 0.26f};
+    private static final float[] MAX_TARGET_LUMA = {0f, 0.7f, 1f, 0.45f, 0.7f, 1f, 0.45f};
+    private static final float[] MIN_TARGET_SATURATION = {0f, 0.35f, 0.35f, 0.35f, 0f, 0f, 0f};
+    private static final float[] TARGET_SATURATION = {0f, 1f, 1f, 1f, 0.3f, 0.3f, 0.3f};
+    private static final float[] MAX_TARGET_SATURATION = {0f, 1f, 1f, 1f, 0.4f, 0.4f, 0.4f};
+
+    private final int[] mCount = new int[BUCKET_COUNT];
+    private final int[] mRedSum = new int[BUCKET_COUNT];
+    private final int[] mGreenSum = new int[BUCKET_COUNT];
+    private final int[] mBlueSum = new int[BUCKET_COUNT];
+
+    /* occupied buckets of the last histogram. */
+    private final int[] mBuckets = new int[BUCKET_COUNT];
+    private final int[] mColors = new int[BUCKET_COUNT];
+    private final float[] mSaturation = new float[BUCKET_COUNT];
+    private final float[] mLuma = new float[BUCKET_COUNT];
+    private int mBucketCount;
+    private int mMaxPopulation;
+
+    /**
+     * Extract swatch colors of pixels.
+     *
+     * @param pixels       ARGB pixels.
+     * @param length       count of pixels to read from index 0.
+     * @param defaultColor color of swatches which can't be found.
+     * @return new array of {@link #RESULT_SIZE} colors.
+     */
+    public int[] extract(int[] pixels, int length, int defaultColor) {
+        int[] result = new int[RESULT_SIZE];
+        extract(pixels, length, defaultColor, result);
+        return result;
+    }
+
+    /**
+     * Extract swatch colors of pixels into result.
+     *
+     * @param pixels       ARGB pixels.
+     * @param length       count of pixels to read from index 0.
+     * @param defaultColor color of swatches which can't be found.
+     * @param result       array of at least {@link #RESULT_SIZE}.
+     */
+    public void extract(int[] pixels, int length, int defaultColor, int[] result) {
+        buildHistogram(pixels, length);
+        result[0] = 0;
+        for (int target = VIBRANT; target < RESULT_SIZE; target++) {
+            int index = findBest(target, result, target);
+            result[target] = index < 0 ? defaultColor : mColors[index];
+        }
+    }
+
+    private void buildHistogram(int[] pixels, int length) {
+        for (int i = 0; i < mBucketCount; i++) {
+            int bucket = mBuckets[i];
+            mCount[bucket] = 0;
+            mRedSum[bucket] = 0;
+            mGreenSum[bucket] = 0;
+            mBlueSum[bucket] = 0;
+        }
+        mBucketCount = 0;
+
+        int shift = 8 - BUCKET_BITS;
+        for (int i = 0; i < length; i++) {
+            int pixel = pixels[i];
+            if ((pixel >>> 24) < MIN_ALPHA) continue;
+            int r = (pixel >> 16) & 0xff;
+            int g = (pixel >> 8) & 0xff;
+            int b = pixel & 0xff;
+            int bucket = ((r >> shift) << (BUCKET_BITS * 2)) | ((g >> shift) << BUCKET_BITS) | (b >> shift);
+            if (mCount[bucket]++ == 0) {
+                mBuckets[mBucketCount++] = bucket;
+            }
+            mRedSum[bucket] += r;
+            mGreenSum[bucket] += g;
+            mBlueSum[bucket] += b;
+        }
+
+        mMaxPopulation = 0;
+        for (int i = 0; i < mBucketCount; i++) {
+            int bucket = mBuckets[i];
+            int count = mCount[bucket];
+            int r = mRedSum[bucket] / count;
+            int g = mGreenSum[bucket] / count;
+            int b = mBlueSum[bucket] / count;
+            mColors[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+
+            float rf = r / 255f;
+            float gf = g / 255f;
+            float bf = b / 255f;
+            float max = Math.max(rf, Math.max(gf, bf));
+            float min = Math.min(rf, Math.min(gf, bf));
+            float luma = (max + min) / 2f;
+            float delta = max - min;
+            mLuma[i] = luma;
+            if (delta == 0f) {
+                mSaturation[i] = 0f;
+            } else {
+                mSaturation[i] = delta / (1f - Math.abs(2f * luma - 1f));
+            }
+            if (count > mMaxPopulation) mMaxPopulation = count;
+        }
+    }
+
+    /**
+     * @return index of the best occupied bucket for target, or -1. Colors already picked for earlier
+     * targets are skipped like Palette does.
+     */
+    private int findBest(int target, int[] picked, int pickedCount) {
+        int best = -1;
+        float bestScore = 0f;
+        for (int i = 0; i < mBucketCount; i++) {
+            float luma = mLuma[i];
+            float saturation = mSaturation[i];
+            if (luma <= MIN_LUMA || luma >= MAX_LUMA
+                    || luma < MIN_TARGET_LUMA[target] || luma > MAX_TARGET_LUMA[target]
+                    || saturation < MIN_TARGET_SATURATION[target] || saturation > MAX_TARGET_SATURATION[target]
+                    || isPicked(mColors[i], picked, pickedCount)) {
+                continue;
+            }
+            float score = score(saturation, TARGET_SATURATION[target], luma, TARGET_LUMA[target],
+                    mCount[mBuckets[i]]);
+            if (best < 0 || score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isPicked(int color, int[] picked, int pickedCount) {
+        for (int i = VIBRANT; i < pickedCount; i++) {
+            if (picked[i] == color) return true;
+        }
+        return false;
+    }
+
+    private float score(float saturation, float targetSaturation, float luma, float targetLuma, int population) {
+        float sum = (1f - Math.abs(saturation - targetSaturation)) * WEIGHT_SATURATION
+                + (1f - Math.abs(luma - targetLuma)) * WEIGHT_LUMA
+                + ((float) population / mMaxPopulation) * WEIGHT_POPULATION;
+        return sum / (WEIGHT_SATURATION + WEIGHT_LUMA + WEIGHT_POPULATION);
+    }
+}
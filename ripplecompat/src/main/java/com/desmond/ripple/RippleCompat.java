@@ -1,8 +1,9 @@
 package com.desmond.ripple;
 
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
 import android.content.Context;
-import android.graphics.Rect;
-import android.graphics.drawable.ColorDrawable;
+import android.content.res.Configuration;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.os.Build;
@@ -11,20 +12,84 @@ import android.support.v7.widget.AppCompatEditText;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewTreeObserver;
+import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
 
+import java.util.concurrent.Executor;
+
 public class RippleCompat {
     private static final String TAG = "RippleCompat";
     private static InputMethodManager imm = null;
     private static Context sContext = null;
+    private static boolean isConfigCallbackRegistered = false;
 
     public static void init(Context context) {
         imm = (InputMethodManager) context.getSystemService(Context.INPUT_METHOD_SERVICE);
         sContext = context;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH && !isConfigCallbackRegistered) {
+            registerConfigCallback(context);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private static void registerConfigCallback(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (appContext == null) appContext = context;
+        appContext.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                RipplePathFactory.clearCache();
+                RippleSpriteFactory.clearCache();
+            }
+
+            @Override
+            public void onLowMemory() {
+                RippleSpriteFactory.clearCache();
+            }
+        });
+        isConfigCallbackRegistered = true;
+    }
+
+    /**
+     * Set executor palette extraction runs on, default is a single background thread.
+     *
+     * @param executor executor for palette work.
+     */
+    public static void setPaletteExecutor(Executor executor) {
+        RipplePaletteLoader.setExecutor(executor);
+    }
+
+    /**
+     * Set time and frames all ripples are animated by, e.g. a {@link RippleManualFrameSource} to simulate
+     * frames in tests and benchmarks. Configs with their own source keep it, see
+     * {@link RippleConfig#setFrameSource(RippleFrameSource)}. Palette results are delivered on its frames too.
+     * Install it before ripples start, running ones would jump to the new time base.
+     *
+     * @param frameSource frame source, null to restore the display vsync and system clock.
+     */
+    public static void setFrameSource(RippleFrameSource frameSource) {
+        RippleFrameScheduler.getInstance().setFrameSource(frameSource);
+    }
+
+    /**
+     * Persist palette results in app-private storage, so they survive process restarts. Backgrounds are keyed
+     * by resource id (see {@link RippleConfig#setBackgroundResource(int)}) or {@link RippleConfig#setPaletteKey(long)}.
+     *
+     * @param context context
+     */
+    public static void enableDiskPaletteCache(Context context) {
+        enableDiskPaletteCache(context, RippleDiskPaletteCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param context  context
+     * @param capacity max count of cached backgrounds.
+     */
+    public static void enableDiskPaletteCache(Context context, int capacity) {
+        RippleDiskPaletteCache.enable(context, capacity);
     }
 
     public static void apply(View v) {
@@ -70,18 +135,8 @@ public class RippleCompat {
     public static void apply(View v, int rippleColor, int resId, ImageView.ScaleType scaleType) {
         RippleConfig config = new RippleConfig();
         config.setRippleColor(rippleColor);
-
-        if (sContext != null) {
-            try {
-                config.setBackgroundDrawable(sContext.getResources().getDrawable(resId));
-                config.setScaleType(scaleType);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        } else {
-            Log.e(TAG, "RippleCompat->apply --err log-- not init context!");
-        }
-
+        config.setBackgroundResource(resId);
+        config.setScaleType(scaleType);
         apply(v, config, null);
     }
 
@@ -89,33 +144,293 @@ public class RippleCompat {
         apply(v, config, null);
     }
 
+    /**
+     * Apply ripple to view. Applying again to the same view reconfigures its ripple in place, and
+     * onFinishListener replaces the one passed last time.
+     *
+     * @param v                view to set.
+     * @param config           ripple config.
+     * @param onFinishListener listener called when the ripple of a click finished, may be null.
+     */
     public static void apply(View v, RippleConfig config, RippleCompatDrawable.OnFinishListener onFinishListener) {
+        apply(v, config, onFinishListener, null);
+    }
+
+    /**
+     * @param resDrawable background resource of config already resolved, null to resolve it here. Views get
+     *                    their own drawables of its constant state.
+     */
+    private static void apply(View v, RippleConfig config, RippleCompatDrawable.OnFinishListener onFinishListener,
+                              Drawable resDrawable) {
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable != null) {
+            drawable.reconfigure(config);
+            setApplyListener(v, drawable, onFinishListener);
+            readaptBackground(drawable, v, config, resDrawable);
+            return;
+        }
+
         v.setFocusableInTouchMode(true);
-        final RippleCompatDrawable drawable = new RippleCompatDrawable(config);
+        drawable = RippleDrawablePool.acquire(config.obtainState());
+        if (drawable == null) drawable = new RippleCompatDrawable(config);
+        v.setTag(R.id.ripple_compat_drawable, drawable);
+        setApplyListener(v, drawable, onFinishListener);
+        handleAttach(v);
+        measure(drawable, v);
+        adaptBackground(drawable, v, config, resDrawable);
+    }
+
+    public interface ViewFilter {
+        /**
+         * @param v descendant view.
+         * @return true if ripple should be applied to v.
+         */
+        boolean accept(View v);
+    }
+
+    /**
+     * Result of {@link #applyAll(ViewGroup, RippleConfig, ViewFilter)}.
+     */
+    public static class ApplyResult {
+        private int mVisitedCount = 0;
+        private int mAppliedCount = 0;
+        private long mDurationNanos = 0;
+
+        /**
+         * @return count of descendant views walked.
+         */
+        public int getVisitedCount() {
+            return mVisitedCount;
+        }
+
+        /**
+         * @return count of views ripple applied to.
+         */
+        public int getAppliedCount() {
+            return mAppliedCount;
+        }
+
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "ApplyResult{visited=" + mVisitedCount + ", applied=" + mAppliedCount
+                    + ", duration=" + mDurationNanos / 1000 + "us}";
+        }
+    }
+
+    /**
+     * Apply config to every descendant of root that is an instance of one of classes, e.g.
+     * {@code applyAll(toolbar, config, Button.class, ImageView.class)}.
+     *
+     * @param root    root of views, not applied itself.
+     * @param config  ripple config.
+     * @param classes classes of views to apply.
+     * @return count of views and time spent.
+     */
+    public static ApplyResult applyAll(ViewGroup root, RippleConfig config, final Class<?>... classes) {
+        return applyAll(root, config, new ViewFilter() {
+            @Override
+            public boolean accept(View v) {
+                for (Class<?> clazz : classes) {
+                    if (clazz.isInstance(v)) return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Apply config to every descendant of root accepted by filter in one walk. All ripples share the drawable
+     * state of config, and the background resource of config is resolved once, so its palette is computed
+     * once for all views. Each view still gets a background drawable of its own, sharing the constant state,
+     * as bounds and callback of a drawable belong to one view.
+     *
+     * @param root   root of views, not applied itself.
+     * @param config ripple config.
+     * @param filter filter of views to apply.
+     * @return count of views and time spent.
+     */
+    public static ApplyResult applyAll(ViewGroup root, RippleConfig config, ViewFilter filter) {
+        ApplyResult result = new ApplyResult();
+        long start = System.nanoTime();
+        Drawable resDrawable = config.getBackgroundDrawable() == null && config.getBackgroundResId() != 0
+                ? getResourceDrawable(config.getBackgroundResId()) : null;
+        applyChildren(root, config, filter, resDrawable, result);
+        result.mDurationNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void applyChildren(ViewGroup parent, RippleConfig config, ViewFilter filter,
+                                      Drawable resDrawable, ApplyResult result) {
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            result.mVisitedCount++;
+            if (filter.accept(child)) {
+                apply(child, config, null, resDrawable);
+                result.mAppliedCount++;
+            }
+            if (child instanceof ViewGroup) {
+                applyChildren((ViewGroup) child, config, filter, resDrawable, result);
+            }
+        }
+    }
+
+    /**
+     * Bind ripple of a recycled item view, call it in {@code getView} or {@code onBindViewHolder}. The first
+     * bind of a view applies config, later binds with the same config only drop running ripples and swap
+     * background and palette key, which doesn't allocate once palettes of the backgrounds are cached.
+     *
+     * @param v          item view.
+     * @param config     ripple config, should be the same instance for all items.
+     * @param background background image of the item, for an {@code ImageView} pass its image here instead
+     *                   of setting it to the view.
+     * @param paletteKey content hash of background, see {@link RippleConfig#setPaletteKey(long)}. 0 if none.
+     */
+    public static void bind(View v, RippleConfig config, Drawable background, long paletteKey) {
+        bind(v, config, background, 0, paletteKey);
+    }
+
+    /**
+     * @param v      item view.
+     * @param config ripple config, should be the same instance for all items.
+     * @param resId  resource id of background image of the item.
+     */
+    public static void bind(View v, RippleConfig config, int resId) {
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable != null && drawable.getBackgroundResId() == resId
+                && drawable.getConstantState() == config.obtainState()) {
+            drawable.rebind(drawable.getBackgroundDrawable(), resId, 0);
+            return;
+        }
+        bind(v, config, getResourceDrawable(resId), resId, 0);
+    }
+
+    private static void bind(View v, RippleConfig config, Drawable background, int resId, long paletteKey) {
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable == null || drawable.getConstantState() != config.obtainState()) {
+            apply(v, config);
+            drawable = getRippleDrawable(v);
+        }
+        drawable.rebind(background, resId, paletteKey);
+    }
+
+    /**
+     * Remove ripple from view and put its drawable into the drawable pool, e.g. when the item view is dropped
+     * by the list. The view gets back the background it had before apply, and an {@code ImageView} its image.
+     *
+     * @param v view ripple applied to.
+     */
+    public static void unbind(View v) {
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable == null) return;
+        v.setTag(R.id.ripple_compat_drawable, null);
+        v.setTag(R.id.ripple_compat_listener, null);
+        v.setOnTouchListener(null);
+        removeAttachListener(v);
+
+        Drawable background = v.getBackground();
+        if (background == drawable || isRippleLayer(background, drawable)) {
+            RippleUtil.setBackground(v, (Drawable) v.getTag(R.id.ripple_compat_background));
+        }
+        v.setTag(R.id.ripple_compat_background, null);
+        if (v instanceof ImageView && ((ImageView) v).getDrawable() == null) {
+            ((ImageView) v).setImageDrawable(drawable.getBackgroundDrawable());
+        }
+
+        drawable.recycle();
+        RippleDrawablePool.release(drawable);
+    }
+
+    /**
+     * @return true if background is the layer apply wrapped the view background and drawable in.
+     */
+    private static boolean isRippleLayer(Drawable background, RippleCompatDrawable drawable) {
+        if (!(background instanceof LayerDrawable)) return false;
+        LayerDrawable layer = (LayerDrawable) background;
+        return layer.getNumberOfLayers() == 2 && layer.getDrawable(1) == drawable;
+    }
+
+    /**
+     * Keep up to maxSize unbound drawables per config for reuse, see {@link #unbind(View)}. Default is 0,
+     * nothing is pooled.
+     *
+     * @param maxSize max count of pooled drawables per config.
+     */
+    public static void setDrawablePoolSize(int maxSize) {
+        RippleDrawablePool.setMaxSize(maxSize);
+    }
+
+    /**
+     * @return ripple drawable applied to view, or null if none.
+     */
+    static RippleCompatDrawable getRippleDrawable(View v) {
+        Object drawable = v.getTag(R.id.ripple_compat_drawable);
+        return drawable instanceof RippleCompatDrawable ? (RippleCompatDrawable) drawable : null;
+    }
+
+    private static void setApplyListener(View v, RippleCompatDrawable drawable,
+                                         RippleCompatDrawable.OnFinishListener onFinishListener) {
+        Object last = v.getTag(R.id.ripple_compat_listener);
+        if (last == onFinishListener) return;
+        if (last != null) {
+            drawable.removeOnFinishListener((RippleCompatDrawable.OnFinishListener) last);
+        }
         if (onFinishListener != null) {
             drawable.addOnFinishListener(onFinishListener);
         }
-        handleAttach(v, drawable);
-        measure(drawable, v);
-        adaptBackground(drawable, v, config);
+        v.setTag(R.id.ripple_compat_listener, onFinishListener);
     }
 
-    private static void handleAttach(final View v, final RippleCompatDrawable drawable){
-        if(Build.VERSION.SDK_INT >= 12){
-            v.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
-                @Override
-                public void onViewAttachedToWindow(View v) {
-                }
+    private static void handleAttach(View v) {
+        if (Build.VERSION.SDK_INT >= 12 && v.getTag(R.id.ripple_compat_attach_listener) == null) {
+            addAttachListener(v);
+        }
+    }
 
-                @Override
-                public void onViewDetachedFromWindow(View v) {
-                    drawable.finishRipple();
-                }
-            });
+    @TargetApi(12)
+    private static void addAttachListener(View v) {
+        AttachListener listener = new AttachListener();
+        v.addOnAttachStateChangeListener(listener);
+        v.setTag(R.id.ripple_compat_attach_listener, listener);
+    }
+
+    private static void removeAttachListener(View v) {
+        Object listener = v.getTag(R.id.ripple_compat_attach_listener);
+        if (listener == null) return;
+        v.setTag(R.id.ripple_compat_attach_listener, null);
+        removeAttachListener(v, listener);
+    }
+
+    @TargetApi(12)
+    private static void removeAttachListener(View v, Object listener) {
+        v.removeOnAttachStateChangeListener((View.OnAttachStateChangeListener) listener);
+    }
+
+    /**
+     * Pauses palette and ripples of the drawable currently applied to a detached view, one per view.
+     */
+    @TargetApi(12)
+    private static class AttachListener implements View.OnAttachStateChangeListener {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            RippleCompatDrawable drawable = getRippleDrawable(v);
+            if (drawable != null) drawable.resumePalette();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            RippleCompatDrawable drawable = getRippleDrawable(v);
+            if (drawable == null) return;
+            drawable.finishRipple();
+            drawable.cancelPalette();
         }
     }
 
-    private static void adaptBackground(RippleCompatDrawable rippleDrawable, View v, RippleConfig config) {
+    private static void adaptBackground(RippleCompatDrawable rippleDrawable, View v, RippleConfig config,
+                                        Drawable resDrawable) {
         Drawable background;
 
         if (v instanceof ImageView) {
@@ -129,14 +444,13 @@ public class RippleCompat {
                     v.getPaddingRight(),
                     v.getPaddingBottom());
             ((ImageView) v).setImageDrawable(null);
+            v.setTag(R.id.ripple_compat_background, v.getBackground());
             RippleUtil.setBackground(v, rippleDrawable);
         } else {
-            if (config.getBackgroundDrawable() != null) {
-                rippleDrawable.setBackgroundDrawable(config.getBackgroundDrawable());
-                rippleDrawable.setScaleType(config.getScaleType());
-            }
+            setConfigBackground(rippleDrawable, config, resDrawable);
 
             background = v.getBackground();
+            v.setTag(R.id.ripple_compat_background, background);
             if (background != null) {
                 RippleUtil.setBackground(v, new LayerDrawable(new Drawable[]{background, rippleDrawable}));
             } else {
@@ -145,6 +459,74 @@ public class RippleCompat {
         }
     }
 
+    /**
+     * Update background of a ripple drawable applied before, the view background is already set.
+     */
+    private static void readaptBackground(RippleCompatDrawable rippleDrawable, View v, RippleConfig config,
+                                          Drawable resDrawable) {
+        boolean isBackgroundSet = false;
+        if (v instanceof ImageView) {
+            /* image is moved into the ripple drawable, a non-null one was set after last apply. */
+            Drawable image = ((ImageView) v).getDrawable();
+            if (image != null) {
+                rippleDrawable.setBackgroundDrawable(image);
+                ((ImageView) v).setImageDrawable(null);
+                isBackgroundSet = true;
+            }
+            rippleDrawable.setScaleType(((ImageView) v).getScaleType());
+        } else {
+            isBackgroundSet = setConfigBackground(rippleDrawable, config, resDrawable);
+        }
+        if (!isBackgroundSet) {
+            rippleDrawable.setPaletteMode(config.getPaletteMode());
+        }
+        v.invalidate();
+    }
+
+    /**
+     * @return true if config has a background.
+     */
+    private static boolean setConfigBackground(RippleCompatDrawable rippleDrawable, RippleConfig config,
+                                               Drawable resDrawable) {
+        if (config.getBackgroundDrawable() != null) {
+            rippleDrawable.setBackgroundDrawable(config.getBackgroundDrawable());
+            rippleDrawable.setScaleType(config.getScaleType());
+            return true;
+        } else if (config.getBackgroundResId() != 0) {
+            Drawable background = resDrawable != null ? copyDrawable(resDrawable, config.getBackgroundResId())
+                    : getResourceDrawable(config.getBackgroundResId());
+            if (background != null) {
+                rippleDrawable.setBackgroundDrawable(background, config.getBackgroundResId());
+                rippleDrawable.setScaleType(config.getScaleType());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a new drawable sharing the constant state of template, it's resolved again from resId if the
+     * state can't be shared.
+     */
+    private static Drawable copyDrawable(Drawable template, int resId) {
+        Drawable.ConstantState state = template.getConstantState();
+        if (state == null) return getResourceDrawable(resId);
+        return state.newDrawable(sContext.getResources());
+    }
+
+    private static Drawable getResourceDrawable(int resId) {
+        if (sContext == null) {
+            Log.e(TAG, "RippleCompat->apply --err log-- not init context!");
+            return null;
+        }
+        try {
+            return sContext.getResources().getDrawable(resId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Set palette mode of the ripple.
      *
@@ -152,14 +534,9 @@ public class RippleCompat {
      * @param paletteMode palette mode. {@link com.desmond.ripple.RippleUtil.PaletteMode}
      */
     public static void setPaletteMode(View v, RippleUtil.PaletteMode paletteMode) {
-        Drawable drawable = v.getBackground();
-        if (drawable instanceof RippleCompatDrawable) {
-            ((RippleCompatDrawable) drawable).setPaletteMode(paletteMode);
-        } else if (drawable instanceof LayerDrawable){
-            int layer = ((LayerDrawable) drawable).getNumberOfLayers();
-            if(((LayerDrawable) drawable).getDrawable(layer - 1) instanceof RippleCompatDrawable){
-                ((RippleCompatDrawable) ((LayerDrawable) drawable).getDrawable(layer - 1)).setPaletteMode(paletteMode);
-            }
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable != null) {
+            drawable.setPaletteMode(paletteMode);
         }
     }
 
@@ -170,12 +547,9 @@ public class RippleCompat {
      * @param scaleType ScaleType of an image, {@link android.widget.ImageView.ScaleType}
      */
     public static void setScaleType(View v, ImageView.ScaleType scaleType) {
-        Drawable drawable = v.getBackground();
-        if (drawable instanceof RippleCompatDrawable) {
-            ((RippleCompatDrawable) drawable).setScaleType(scaleType);
-        } else if (drawable instanceof LayerDrawable
-                && ((LayerDrawable) drawable).getDrawable(1) instanceof RippleCompatDrawable) {
-            ((RippleCompatDrawable) ((LayerDrawable) drawable).getDrawable(1)).setScaleType(scaleType);
+        RippleCompatDrawable drawable = getRippleDrawable(v);
+        if (drawable != null) {
+            drawable.setScaleType(scaleType);
         }
         v.invalidate();
     }
@@ -188,14 +562,7 @@ public class RippleCompat {
         }
         v.setFocusableInTouchMode(true);
         v.setOnTouchListener(new ForwardingTouchListener(drawable, v));
-        v.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @Override
-            public void onGlobalLayout() {
-                int radius = Math.max(v.getMeasuredWidth(), v.getMeasuredHeight());
-                drawable.setMeasure(v.getMeasuredWidth(), v.getMeasuredHeight());
-                if (drawable.isFull()) drawable.setMaxRippleRadius(radius);
-            }
-        });
+        /* the drawable is sized by its bounds, see RippleCompatDrawable#onBoundsChange. */
     }
 
     private static void fitButton(final RippleCompatDrawable drawable, boolean isAppCompatStyle) {
@@ -212,6 +579,17 @@ public class RippleCompat {
                 isAppCompatStyle ? RippleUtil.ET_INSET_BOTTOM_APPCOMPAT : RippleUtil.ET_INSET);
     }
 
+    /**
+     * Click view once its ripple finished, an EditText gets focus and soft input instead.
+     */
+    static void performRippleClick(View v) {
+        if (v instanceof EditText && imm != null) {
+            v.requestFocus();
+            imm.showSoftInput(v, InputMethodManager.SHOW_IMPLICIT);
+        }
+        v.performClick();
+    }
+
     private static class ForwardingTouchListener implements View.OnTouchListener {
         RippleCompatDrawable drawable;
 
@@ -220,11 +598,7 @@ public class RippleCompat {
             drawable.addOnFinishListener(new RippleCompatDrawable.OnFinishListener() {
                 @Override
                 public void onFinish() {
-                    if (v instanceof EditText && imm != null) {
-                        v.requestFocus();
-                        imm.showSoftInput(v, InputMethodManager.SHOW_IMPLICIT);
-                    }
-                    v.performClick();
+                    performRippleClick(v);
                 }
             });
         }
@@ -234,21 +608,11 @@ public class RippleCompat {
 
             switch (event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
-                    return isInBound(event.getX(), event.getY()) && drawable.onTouch(v, event);
+                    return drawable.isInBound(event.getX(), event.getY()) && drawable.onTouch(v, event);
 
                 default:
                     return drawable.onTouch(v, event);
             }
         }
-
-        private boolean isInBound(float x, float y) {
-            Rect bound;
-            if (drawable.getBackgroundDrawable() == null || drawable.getBackgroundDrawable() instanceof ColorDrawable) {
-                bound = drawable.getClipBound();
-            } else {
-                bound = drawable.getDrawableBound();
-            }
-            return x >= bound.left && x <= bound.right && y >= bound.top && y <= bound.bottom;
-        }
     }
 }
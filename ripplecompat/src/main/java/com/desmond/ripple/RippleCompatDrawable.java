@@ -1,22 +1,18 @@
 package com.desmond.ripple;
 
-import android.animation.Animator;
-import android.animation.ValueAnimator;
-import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.SystemClock;
+import android.support.v4.view.MotionEventCompat;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.widget.ImageView;
 
@@ -26,7 +22,8 @@ import java.util.ArrayList;
  * Created by Jiayi Yao on 2015/10/28.
  */
 public class RippleCompatDrawable extends Drawable implements View.OnTouchListener {
-    private enum Speed {PRESSED, NORMAL}
+    /* Same curve the fade ValueAnimator used by default. */
+    private static final Interpolator FADE_INTERPOLATOR = new AccelerateDecelerateInterpolator();
 
     public enum Type {CIRCLE, HEART, TRIANGLE}
 
@@ -35,17 +32,31 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
     }
 
     /* ClipBound for widget inset padding.*/
-    private Rect mClipBound;
-    /* Drawable bound for background image. */
-    private Rect mDrawableBound;
+    private Rect mClipBound = new Rect();
+    /* Drawable bound for background image, valid unless isDrawableBoundDirty. */
+    private Rect mDrawableBound = new Rect();
+    private Rect mContainerBound = new Rect();
+    /* intrinsic size of background mDrawableBound is computed with. */
+    private int mIntrinsicWidth = -1;
+    private int mIntrinsicHeight = -1;
+    private boolean isDrawableBoundDirty = true;
+    /* Scratch objects of dirty rect computation, only used on the main thread. */
+    private static final RectF sTransformedBound = new RectF();
+    private static final Matrix sTransformMatrix = new Matrix();
+    private static final Rect sRippleBound = new Rect();
+    /* Union of ripple bounds changed during current frame. */
+    private Rect mDirtyRect = new Rect();
+    /* Last bounds of ripples evicted since last frame, added to its dirty rect. */
+    private Rect mEvictedRect = new Rect();
+    private boolean isDirtyFull = false;
+
+    /* config-derived state, shared by all drawables of a config. */
+    private RippleState mState;
 
     private ArrayList<OnFinishListener> mOnFinishListeners;
-    private Paint mRipplePaint;
-    private Speed mSpeed;
-    private Path mRipplePath;
-    private Interpolator mInterpolator;
-    private ValueAnimator mFadeAnimator;
     private Drawable mBackgroundDrawable;
+    private int mBackgroundResId = 0;
+    private long mPaletteKey = 0;
     private RippleUtil.PaletteMode mPaletteMode;
     private ImageView.ScaleType mScaleType = ImageView.ScaleType.FIT_CENTER;
     private int mWidth = 0;
@@ -53,72 +64,169 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
     private int mRippleColor;
     private int mBackgroundColor;
     private int mBackgroundColorAlpha = 0;
-    private int mRippleDuration;
     private int mMaxRippleRadius;
-    private int mFadeDuration;
-    private int mAlpha;
-    private int mAlphaDelta = 0;
     private int mPaddingLeft = 0;
     private int mPaddingRight = 0;
     private int mPaddingTop = 0;
     private int mPaddingBottom = 0;
-    private float mDegree;
-
-    private long mStartTime;
-    private int x;
-    private int y;
-    private float mScale = 0f;
-    private int lastX;
-    private int lastY;
-    private float lastScale = 0f;
-
-    private boolean isFull = false;
-    private boolean isSpin = false;
-    private boolean isWaving = false;
-    private boolean isPressed = false;
-    private boolean isFading = false;
-
-    private Handler mHandler = new Handler(Looper.getMainLooper());
-    private Runnable mRippleRunnable = new Runnable() {
+
+    /* own paint, color and alpha are set before each ripple, so drawables sharing state don't share it. */
+    private final Paint mPaint = new Paint();
+    /* concurrent ripples, one per pointer. */
+    private RipplePool mRipples;
+    /* null unless render thread animation is enabled and supported. */
+    private RippleRenderThreadEngine mRenderThreadEngine;
+
+    private boolean isPaletteCancelled = false;
+
+    /* created on first recording, see RippleMetrics. */
+    private RippleMetrics mMetrics;
+    /* time of last frame ticked, 0 if ripples were idle. */
+    private long mLastFrameTime = 0;
+    /* System.nanoTime() of the ACTION_DOWN whose ripple isn't drawn yet, 0 if none. */
+    private long mTouchDownNanos = 0;
+
+    private RippleFrameScheduler.FrameCallback mFrameCallback = new RippleFrameScheduler.FrameCallback() {
         @Override
-        public void run() {
-            updateRipple(mSpeed);
-            if (isWaving || isPressed) {
-                mHandler.postDelayed(this, RippleUtil.FRAME_INTERVAL);
-            } else if (!isFading) {
-                startFadeAnimation();
+        public boolean doFrame(long frameTimeMillis) {
+            RipplePool ripples = mRipples;
+            if (RippleMetrics.isEnabled() && mLastFrameTime != 0) {
+                obtainMetrics().recordFrameInterval(frameTimeMillis - mLastFrameTime);
             }
+            mLastFrameTime = frameTimeMillis;
+            mDirtyRect.set(mEvictedRect);
+            mEvictedRect.setEmpty();
+            isDirtyFull = false;
+            for (int i = 0; i < ripples.size; i++) {
+                if (!ripples.active[i]) continue;
+                ripples.ticks[i]++;
+                if (ripples.waving[i] || ripples.pressed[i]) {
+                    updateRipple(i, frameTimeMillis);
+                    if (!ripples.waving[i] && !ripples.pressed[i] && !ripples.fading[i]) {
+                        startFadeAnimation(i);
+                    }
+                }
+                if (ripples.fading[i]) {
+                    updateFade(i, frameTimeMillis);
+                }
+            }
+            invalidateDirty();
+            if (ripples.activeCount() > 0) return true;
+            mLastFrameTime = 0;
+            return false;
         }
     };
 
     public RippleCompatDrawable(RippleConfig config) {
-        this(config.getRippleColor(), config.getMaxRippleRadius(),
-                config.getRippleDuration(), config.getInterpolator(), config.getFadeDuration(),
-                config.isFull(), config.getPath(), config.isSpin(), config.getPaletteMode());
+        this(config.obtainState());
     }
 
-    private RippleCompatDrawable(int rippleColor, int maxRippleRadius,
-                                 int rippleDuration, Interpolator interpolator, int fadeDuration,
-                                 boolean isFull, Path path, boolean isSpin, RippleUtil.PaletteMode paletteMode) {
-        setRippleColor(rippleColor);
-        mMaxRippleRadius = maxRippleRadius;
-        mRippleDuration = rippleDuration;
-        mInterpolator = interpolator;
-        mFadeDuration = fadeDuration;
-        mPaletteMode = paletteMode;
+    RippleCompatDrawable(RippleState state) {
+        mState = state;
+        mPaint.setAntiAlias(true);
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setFilterBitmap(true);
+        applyState();
+    }
 
-        this.isFull = isFull;
-        this.isSpin = isSpin;
+    /**
+     * Reconfigure in place, running ripples are finished. Background is kept, and palette isn't requested
+     * again until background or palette mode is set.
+     *
+     * @param config new config.
+     */
+    void reconfigure(RippleConfig config) {
+        finishRipple();
+        mState = config.obtainState();
+        applyState();
+        Rect bounds = getBounds();
+        if (mState.isFull && !bounds.isEmpty()) {
+            mMaxRippleRadius = Math.max(bounds.width(), bounds.height());
+        }
+        invalidateSelf();
+    }
 
-        mRipplePath = path;
+    /**
+     * Bind to the background of a recycled item view. Running ripples are dropped and the palette of the
+     * previous background is forgotten. Doesn't allocate when the palette of background is cached.
+     *
+     * @param background background drawable, may be null.
+     * @param resId      resource id of background, 0 if unknown.
+     * @param paletteKey palette key of background, 0 if none.
+     */
+    void rebind(Drawable background, int resId, long paletteKey) {
+        finishRipple();
+        isPaletteCancelled = false;
+        setRippleColor(mState.rippleColor);
+        mPaletteKey = paletteKey;
+        setBackgroundDrawable(background, resId);
+        invalidateSelf();
+    }
 
-        mRipplePaint = new Paint();
-        mRipplePaint.setAntiAlias(true);
-        mAlpha = 0;
+    /**
+     * Reset to the state of a new drawable, so it can be pooled by {@link RippleDrawablePool}.
+     */
+    void recycle() {
+        finishRipple();
+        cancelPalette();
+        isPaletteCancelled = false;
+        if (mOnFinishListeners != null) mOnFinishListeners.clear();
+        mBackgroundDrawable = null;
+        mBackgroundResId = 0;
+        mScaleType = ImageView.ScaleType.FIT_CENTER;
+        isDrawableBoundDirty = true;
+        setPadding(0, 0, 0, 0);
+        applyState();
+    }
+
+    /**
+     * Reset per-instance values derived from state.
+     */
+    private void applyState() {
+        RippleState state = mState;
+        setRippleColor(state.rippleColor);
+        mMaxRippleRadius = state.maxRippleRadius;
+        mPaletteMode = state.paletteMode;
+        mPaletteKey = state.paletteKey;
+        if (mRipples == null || mRipples.size != state.maxRippleCount) {
+            mRipples = new RipplePool(state.maxRippleCount);
+        }
+        if (state.isRenderThreadAnimated && RippleRenderThreadEngine.isSupported(state.shapeRenderer, state.isSpin)) {
+            if (mRenderThreadEngine == null) mRenderThreadEngine = new RippleRenderThreadEngine(this);
+        } else {
+            mRenderThreadEngine = null;
+        }
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    /**
+     * The shared state is immutable, and everything that changes per drawable is kept by the drawable, so
+     * there is nothing to copy.
+     */
+    @Override
+    public Drawable mutate() {
+        return this;
+    }
+
+    /**
+     * @return metrics of this drawable, null if nothing was recorded. See {@link RippleMetrics}.
+     */
+    public RippleMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    private RippleMetrics obtainMetrics() {
+        if (mMetrics == null) mMetrics = new RippleMetrics();
+        return mMetrics;
     }
 
     @Override
     public void draw(Canvas canvas) {
+        long drawStart = RippleMetrics.isEnabled() ? System.nanoTime() : 0;
 
         if (mBackgroundDrawable == null) {
             canvas.clipRect(mClipBound);
@@ -127,28 +235,56 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
             mBackgroundDrawable.setBounds(mClipBound);
             mBackgroundDrawable.draw(canvas);
         } else {
-            if (mDrawableBound == null) {
-                mDrawableBound = RippleUtil.getBound(mScaleType, new Rect(0, 0, mWidth, mHeight),
-                        mBackgroundDrawable.getIntrinsicWidth(), mBackgroundDrawable.getIntrinsicHeight());
-            }
+            updateDrawableBound();
             canvas.clipRect(mDrawableBound);
             mBackgroundDrawable.setBounds(mDrawableBound);
             mBackgroundDrawable.draw(canvas);
         }
 
+        RipplePool ripples = mRipples;
+        mBackgroundColorAlpha = 0;
+        for (int i = 0; i < ripples.size; i++) {
+            if (ripples.active[i]) mBackgroundColorAlpha = Math.max(mBackgroundColorAlpha, ripples.backgroundAlpha[i]);
+        }
         canvas.drawColor(RippleUtil.alphaColor(mBackgroundColor, mBackgroundColorAlpha));
-        canvas.save();
-        canvas.translate(x, y);
-        canvas.scale(mScale, mScale);
-        if (isSpin) canvas.rotate(mDegree);
-        mRipplePaint.setAlpha(mAlpha);
-        canvas.drawPath(mRipplePath, mRipplePaint);
-        canvas.restore();
+
+        RippleState state = mState;
+        Paint paint = mPaint;
+        paint.setColor(mRippleColor);
+        boolean isRippleDrawn = false;
+        for (int i = 0; i < ripples.size; i++) {
+            if (!ripples.active[i]) continue;
+            paint.setAlpha(ripples.alpha[i]);
+            state.shapeRenderer.draw(canvas, paint, ripples.x[i], ripples.y[i], ripples.scale[i],
+                    state.isSpin ? ripples.degree[i] : 0f);
+            if (ripples.scale[i] > 0f) isRippleDrawn = true;
+        }
+
+        if (drawStart != 0) {
+            long drawEnd = System.nanoTime();
+            RippleMetrics metrics = obtainMetrics();
+            metrics.recordDraw(drawEnd - drawStart);
+            if (isRippleDrawn && mTouchDownNanos != 0) {
+                metrics.recordTouchLatency(drawEnd - mTouchDownNanos);
+                mTouchDownNanos = 0;
+            }
+        }
+    }
+
+    /**
+     * The host view sets bounds of its background only when its size changes, so sizing here costs nothing on
+     * layout passes that don't resize the view.
+     */
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        setMeasure(bounds.width(), bounds.height());
+        if (mState.isFull) setMaxRippleRadius(Math.max(bounds.width(), bounds.height()));
     }
 
     @Override
     public void setAlpha(int alpha) {
-        mRipplePaint.setAlpha(alpha);
+        /* ripple alpha is driven by animation, paint alpha is set before drawing each ripple. */
         invalidateSelf();
     }
 
@@ -162,191 +298,283 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
         return 0;
     }
 
-    private long elapsedOffset = 0;
     private static final String TAG = "RippleCompatDrawable";
 
-    private void updateRipple(Speed speed) {
-        float progress = 0f;
-        if (isWaving) {
-            long elapsed = SystemClock.uptimeMillis() - mStartTime;
-            if (speed == Speed.PRESSED) {
-                elapsed = elapsed / 5;
-                elapsedOffset = elapsed * 4;
+    /**
+     * Advance ripple expansion. A pressed ripple expands at 1/5 speed, the time it spent pressed is
+     * remembered in elapsedOffset so releasing it continues from the same progress.
+     */
+    private void updateRipple(int i, long frameTimeMillis) {
+        RipplePool ripples = mRipples;
+        float lastScale = ripples.scale[i];
+        if (ripples.waving[i]) {
+            /* vsync frame time may slightly precede the touch time. */
+            long elapsed = Math.max(0, frameTimeMillis - ripples.startTime[i]);
+            if (ripples.pressed[i]) {
+                elapsed = RippleMath.pressedElapsed(elapsed);
+                ripples.elapsedOffset[i] = RippleMath.pressedOffset(elapsed);
             } else {
-                elapsed = elapsed - elapsedOffset;
+                elapsed = elapsed - ripples.elapsedOffset[i];
             }
-            progress = Math.min(1f, (float) elapsed / mRippleDuration);
-            isWaving = progress <= 0.99f;
-            mScale = (mMaxRippleRadius - RippleUtil.MIN_RIPPLE_RADIUS) / RippleUtil.MIN_RIPPLE_RADIUS * mInterpolator.getInterpolation(progress) + 1f;
-            mBackgroundColorAlpha = (int) (Color.alpha(mBackgroundColor) * (progress <= 0.125f ? progress * 8 : 1f));
+            float progress = RippleMath.progress(elapsed, mState.rippleDuration);
+            ripples.waving[i] = progress <= 0.99f;
+            ripples.degree[i] = RippleMath.spinDegree(progress);
+            ripples.scale[i] = getRippleScale(progress);
+            ripples.backgroundAlpha[i] = RippleMath.backgroundAlpha(Color.alpha(mBackgroundColor), progress);
         } else {
-            mScale = (mMaxRippleRadius - RippleUtil.MIN_RIPPLE_RADIUS) / RippleUtil.MIN_RIPPLE_RADIUS + 1f;
-            mBackgroundColorAlpha = Color.alpha(mBackgroundColor);
+            ripples.scale[i] = RippleMath.rippleScale(mMaxRippleRadius, RippleUtil.MIN_RIPPLE_RADIUS, 1f);
+            ripples.backgroundAlpha[i] = Color.alpha(mBackgroundColor);
         }
-        if (lastX == x && lastY == y && lastScale == mScale) return;
+        boolean isMoved = ripples.moved[i];
+        ripples.moved[i] = false;
+        if (lastScale == ripples.scale[i] && !isMoved) return;
 
-        lastX = x;
-        lastY = y;
-        lastScale = mScale;
+        invalidateRipple(i);
+    }
 
-        mRipplePaint.setColor(mRippleColor);
-        mRipplePaint.setStyle(Paint.Style.FILL);
+    private float getRippleScale(float progress) {
+        return RippleMath.rippleScale(mMaxRippleRadius, RippleUtil.MIN_RIPPLE_RADIUS, mState.interpolator.getInterpolation(progress));
+    }
 
-        mDegree = progress * 480f;
-        invalidateSelf();
+    /**
+     * @return radius of a circle ripple at progress of expansion.
+     */
+    float getRippleRadius(float progress) {
+        return RippleUtil.MIN_RIPPLE_RADIUS * getRippleScale(progress);
     }
 
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        switch (event.getAction()) {
+        int index;
+        switch (MotionEventCompat.getActionMasked(event)) {
             case MotionEvent.ACTION_DOWN:
-                x = (int) event.getX();
-                y = (int) event.getY();
-
-                mSpeed = Speed.PRESSED;
-
-                stopFading();
-                mHandler.removeCallbacks(mRippleRunnable);
-                mStartTime = SystemClock.uptimeMillis();
-                mHandler.postDelayed(mRippleRunnable, RippleUtil.FRAME_INTERVAL);
-                isWaving = true;
-                isPressed = true;
-                elapsedOffset = 0;
-                lastX = x;
-                lastY = y;
-                mDegree = 0;
-                mAlpha = Color.alpha(mRippleColor);
+                /* a new gesture, ripples still following old pointers are released. */
+                releaseAll(false);
+                if (mRenderThreadEngine != null && mState.frameScheduler.isSystemFrameSource()
+                        && mRenderThreadEngine.start(v, event.getX(), event.getY())) break;
+                mTouchDownNanos = RippleMetrics.isEnabled() ? System.nanoTime() : 0;
+                startRipple(MotionEventCompat.getPointerId(event, 0), event.getX(), event.getY());
+                break;
 
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+                if (mRenderThreadEngine != null && mRenderThreadEngine.isPressed()) break;
+                index = MotionEventCompat.getActionIndex(event);
+                startRipple(MotionEventCompat.getPointerId(event, index),
+                        MotionEventCompat.getX(event, index), MotionEventCompat.getY(event, index));
                 break;
+
             case MotionEvent.ACTION_MOVE:
-                x = (int) event.getX();
-                y = (int) event.getY();
-                mSpeed = Speed.PRESSED;
+                for (int p = 0; p < MotionEventCompat.getPointerCount(event); p++) {
+                    movePointer(MotionEventCompat.getPointerId(event, p),
+                            MotionEventCompat.getX(event, p), MotionEventCompat.getY(event, p));
+                }
+                break;
 
+            case MotionEventCompat.ACTION_POINTER_UP:
+                index = MotionEventCompat.getActionIndex(event);
+                releasePointer(MotionEventCompat.getPointerId(event, index), false);
                 break;
+
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                mSpeed = Speed.NORMAL;
-                isPressed = false;
-                startFadeAnimation();
+                releaseAll(true);
+                if (mRenderThreadEngine != null) mRenderThreadEngine.release(true);
                 break;
         }
         return true;
     }
 
-    public void triggerListener() {
-        if (mOnFinishListeners != null && mOnFinishListeners.size() != 0) {
-            for (OnFinishListener listener : mOnFinishListeners) {
-                listener.onFinish();
-            }
-        }
+    /**
+     * Start a ripple following pointerId, for touches observed without {@link #onTouch(View, MotionEvent)},
+     * e.g. by {@link RippleHost}.
+     */
+    void pressPointer(int pointerId, float x, float y) {
+        if (!isRunning()) mTouchDownNanos = RippleMetrics.isEnabled() ? System.nanoTime() : 0;
+        startRipple(pointerId, x, y);
     }
 
-    public void finishRipple() {
-        mHandler.removeCallbacks(mRippleRunnable);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && mFadeAnimator != null) {
-            mFadeAnimator.removeAllUpdateListeners();
-            mFadeAnimator.removeAllListeners();
-            mFadeAnimator = null;
-        } else {
-            mHandler.removeCallbacks(mFadeRunnable4Froyo);
-        }
+    void movePointer(int pointerId, float x, float y) {
+        int ripple = mRipples.findPressed(pointerId);
+        if (ripple >= 0) mRipples.moveTo(ripple, (int) x, (int) y);
     }
 
-    private void startFadeAnimation() {
-        isFading = true;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-            startFadeAnimation4HoneyComb();
-        } else {
-            startFadeAnimation4Froyo();
-        }
+    /**
+     * @param notify true to call finish listeners once the ripple faded.
+     */
+    void releasePointer(int pointerId, boolean notify) {
+        int ripple = mRipples.findPressed(pointerId);
+        if (ripple >= 0) release(ripple, notify);
     }
 
-    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
-    private void startFadeAnimation4HoneyComb() {
-        if (mFadeAnimator == null) {
-            mFadeAnimator = ValueAnimator.ofInt(Color.alpha(mRippleColor), 0);
-            mFadeAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    mAlpha = (int) animation.getAnimatedValue();
-                    if (mAlpha <= mBackgroundColorAlpha) mBackgroundColorAlpha = mAlpha;
-                    invalidateSelf();
-                }
-            });
+    private void startRipple(int pointerId, float touchX, float touchY) {
+        RippleFrameScheduler scheduler = mState.frameScheduler;
+        mRipples.obtain(pointerId, (int) touchX, (int) touchY, scheduler.uptimeMillis(), Color.alpha(mRippleColor),
+                mEvictedRect);
+        scheduler.register(mFrameCallback);
+    }
 
-            mFadeAnimator.addListener(new Animator.AnimatorListener() {
-                @Override
-                public void onAnimationStart(Animator animation) {
+    private void release(int i, boolean notify) {
+        RipplePool ripples = mRipples;
+        ripples.pressed[i] = false;
+        ripples.pointerId[i] = RipplePool.NO_POINTER;
+        ripples.notify[i] = notify;
+        startFadeAnimation(i);
+    }
 
-                }
+    private void releaseAll(boolean notify) {
+        RipplePool ripples = mRipples;
+        for (int i = 0; i < ripples.size; i++) {
+            if (ripples.active[i] && ripples.pressed[i]) release(i, notify);
+        }
+    }
 
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    isFading = false;
-                    triggerListener();
-                }
+    public void triggerListener() {
+        if (mOnFinishListeners != null && mOnFinishListeners.size() != 0) {
+            /* indexed loop, an iterator would be allocated on every finished ripple. */
+            for (int i = 0; i < mOnFinishListeners.size(); i++) {
+                mOnFinishListeners.get(i).onFinish();
+            }
+        }
+    }
 
-                @Override
-                public void onAnimationCancel(Animator animation) {
-                    isFading = false;
-                }
+    /**
+     * @return true if any ripple is expanding or fading.
+     */
+    public boolean isRunning() {
+        return mRipples.activeCount() > 0;
+    }
 
-                @Override
-                public void onAnimationRepeat(Animator animation) {
+    public void finishRipple() {
+        mState.frameScheduler.unregister(mFrameCallback);
+        mRipples.clear();
+        mEvictedRect.setEmpty();
+        mLastFrameTime = 0;
+        mTouchDownNanos = 0;
+        if (mRenderThreadEngine != null) mRenderThreadEngine.cancel();
+    }
 
-                }
-            });
-            mFadeAnimator.setDuration(mFadeDuration);
-        } else {
-            mFadeAnimator.cancel();
+    private void startFadeAnimation(int i) {
+        RipplePool ripples = mRipples;
+        ripples.fading[i] = true;
+        RippleFrameScheduler scheduler = mState.frameScheduler;
+        ripples.fadeStartTime[i] = scheduler.uptimeMillis();
+        ripples.fadeStartAlpha[i] = Color.alpha(mRippleColor);
+        scheduler.register(mFrameCallback);
+    }
+
+    private void updateFade(int i, long frameTimeMillis) {
+        RipplePool ripples = mRipples;
+        float progress = 1f;
+        int fadeDuration = mState.fadeDuration;
+        if (fadeDuration > 0) {
+            progress = RippleMath.progress(Math.max(0, frameTimeMillis - ripples.fadeStartTime[i]), fadeDuration);
+        }
+        int alpha = RippleMath.fadeAlpha(ripples.fadeStartAlpha[i], FADE_INTERPOLATOR.getInterpolation(progress));
+        ripples.alpha[i] = alpha;
+        if (alpha <= ripples.backgroundAlpha[i]) ripples.backgroundAlpha[i] = alpha;
+        invalidateRipple(i);
+        if (progress >= 1f) {
+            if (RippleMetrics.isEnabled()) obtainMetrics().recordTicks(ripples.ticks[i]);
+            boolean notify = ripples.notify[i];
+            ripples.recycle(i);
+            if (notify) triggerListener();
         }
-        mFadeAnimator.start();
     }
 
-    private void startFadeAnimation4Froyo() {
-        mAlphaDelta = getAlphaDelta();
-        mHandler.removeCallbacks(mFadeRunnable4Froyo);
-        mHandler.post(mFadeRunnable4Froyo);
+    /**
+     * Add the area ripple covers in current frame and in last invalidated frame to the dirty rect.
+     */
+    private void invalidateRipple(int i) {
+        RipplePool ripples = mRipples;
+        sTransformMatrix.setScale(ripples.scale[i], ripples.scale[i]);
+        if (mState.isSpin) sTransformMatrix.postRotate(ripples.degree[i]);
+        sTransformMatrix.postTranslate(ripples.x[i], ripples.y[i]);
+        sTransformMatrix.mapRect(sTransformedBound, mState.shapeBound);
+        sTransformedBound.roundOut(sRippleBound);
+        /* anti-aliased edge may exceed the path bound by one pixel. */
+        sRippleBound.inset(-1, -1);
+
+        mDirtyRect.union(sRippleBound);
+        mDirtyRect.union(ripples.boundLeft[i], ripples.boundTop[i], ripples.boundRight[i], ripples.boundBottom[i]);
+        ripples.setBound(i, sRippleBound.left, sRippleBound.top, sRippleBound.right, sRippleBound.bottom);
     }
 
-    private void stopFading() {
-        if (Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB) {
-            if (mFadeAnimator != null) mFadeAnimator.cancel();
-        } else {
-            mHandler.removeCallbacks(mFadeRunnable4Froyo);
+    /**
+     * Invalidate the dirty rect of current frame. The background tint covers the whole clip bound, so the
+     * whole drawable is invalidated when its alpha changes, or when the ripples cover the clip bound anyway.
+     */
+    private void invalidateDirty() {
+        RipplePool ripples = mRipples;
+        int backgroundAlpha = 0;
+        for (int i = 0; i < ripples.size; i++) {
+            if (ripples.active[i]) backgroundAlpha = Math.max(backgroundAlpha, ripples.backgroundAlpha[i]);
+        }
+        if (backgroundAlpha != mBackgroundColorAlpha) isDirtyFull = true;
+        if (!isDirtyFull && mDirtyRect.isEmpty()) return;
+
+        Callback callback = getCallback();
+        Rect clipBound = getDrawClipBound();
+        if (isDirtyFull || !(callback instanceof View) || clipBound == null || mDirtyRect.contains(clipBound)) {
+            invalidateSelf();
+            return;
         }
-        isFading = false;
+        if (!mDirtyRect.intersect(clipBound)) return;
+
+        /* background drawable is drawn at the scroll position of its view. */
+        View view = (View) callback;
+        Rect bounds = getBounds();
+        int dx = bounds.left + view.getScrollX();
+        int dy = bounds.top + view.getScrollY();
+        view.invalidate(mDirtyRect.left + dx, mDirtyRect.top + dy, mDirtyRect.right + dx, mDirtyRect.bottom + dy);
     }
 
-    private Runnable mFadeRunnable4Froyo = new Runnable() {
-        @Override
-        public void run() {
-            if (mAlpha != 0) {
-                int alpha = mAlpha - mAlphaDelta;
-                if (alpha <= 0) {
-                    alpha = 0;
-                    isFading = false;
-                    triggerListener();
-                }
-                mAlpha = alpha;
-                if (mAlpha <= mBackgroundColorAlpha) mBackgroundColorAlpha = mAlpha;
-                invalidateSelf();
-                mHandler.postDelayed(this, RippleUtil.FRAME_INTERVAL);
-            }
+    /**
+     * @return bound the canvas is clipped to in {@link #draw(Canvas)}.
+     */
+    Rect getDrawClipBound() {
+        if (mBackgroundDrawable != null && !(mBackgroundDrawable instanceof ColorDrawable)) {
+            updateDrawableBound();
+            return mDrawableBound;
         }
-    };
+        return mClipBound;
+    }
+
+    /**
+     * @return true if point is inside the drawn area, touches outside shouldn't start a ripple.
+     */
+    boolean isInBound(float x, float y) {
+        Rect bound = getDrawClipBound();
+        return RippleMath.isInBound(x, y, bound.left, bound.top, bound.right, bound.bottom);
+    }
+
+    /**
+     * Recompute bound of background image if size, scale type or intrinsic size changed since last time.
+     */
+    private void updateDrawableBound() {
+        int intrinsicWidth = mBackgroundDrawable.getIntrinsicWidth();
+        int intrinsicHeight = mBackgroundDrawable.getIntrinsicHeight();
+        if (!isDrawableBoundDirty && intrinsicWidth == mIntrinsicWidth && intrinsicHeight == mIntrinsicHeight) {
+            return;
+        }
+        mIntrinsicWidth = intrinsicWidth;
+        mIntrinsicHeight = intrinsicHeight;
+        mContainerBound.set(0, 0, mWidth, mHeight);
+        RippleUtil.getBound(mScaleType, mContainerBound, intrinsicWidth, intrinsicHeight, mDrawableBound);
+        isDrawableBoundDirty = false;
+    }
 
     protected void setPadding(float l, float t, float r, float b) {
         mPaddingLeft = RippleUtil.dip2px(l);
         mPaddingRight = RippleUtil.dip2px(r);
         mPaddingTop = RippleUtil.dip2px(t);
         mPaddingBottom = RippleUtil.dip2px(b);
+        setClipBound();
     }
 
     protected void setMeasure(int width, int height) {
         mWidth = width;
         mHeight = height;
+        isDrawableBoundDirty = true;
         setClipBound();
     }
 
@@ -355,23 +583,70 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
     }
 
     public boolean isFull() {
-        return isFull;
+        return mState.isFull;
     }
 
     protected void setBackgroundDrawable(Drawable backgroundDrawable) {
+        setBackgroundDrawable(backgroundDrawable, 0);
+    }
+
+    /**
+     * @param backgroundDrawable background drawable.
+     * @param resId              resource id of the background, used as palette cache key. 0 if unknown.
+     */
+    protected void setBackgroundDrawable(Drawable backgroundDrawable, int resId) {
         mBackgroundDrawable = backgroundDrawable;
-        RippleUtil.palette(this, backgroundDrawable, mPaletteMode);
-        mDrawableBound = null;
+        mBackgroundResId = resId;
+        RippleUtil.palette(this, backgroundDrawable, resId, mPaletteMode);
+        isDrawableBoundDirty = true;
     }
 
     protected void setPaletteMode(RippleUtil.PaletteMode paletteMode) {
         mPaletteMode = paletteMode;
-        RippleUtil.palette(this, mBackgroundDrawable, mPaletteMode);
+        RippleUtil.palette(this, mBackgroundDrawable, mBackgroundResId, mPaletteMode);
+    }
+
+    public RippleUtil.PaletteMode getPaletteMode() {
+        return mPaletteMode;
+    }
+
+    public boolean isBuiltinPalette() {
+        return mState.isBuiltinPalette;
+    }
+
+    public long getPaletteKey() {
+        return mPaletteKey;
+    }
+
+    /**
+     * Apply palette result of the background with current palette mode.
+     *
+     * @param colors colors indexed by {@link RippleUtil.PaletteMode#ordinal()}.
+     */
+    void applyPaletteColors(int[] colors) {
+        if (mPaletteMode == RippleUtil.PaletteMode.DISABLED) return;
+        setRippleColor(RippleUtil.alphaColor(colors[mPaletteMode.ordinal()], 128));
+    }
+
+    /**
+     * Stop waiting for a pending palette, e.g. when the view is detached.
+     */
+    protected void cancelPalette() {
+        if (RipplePaletteLoader.cancel(this)) isPaletteCancelled = true;
+    }
+
+    /**
+     * Request the palette again if it was cancelled by {@link #cancelPalette()}.
+     */
+    protected void resumePalette() {
+        if (!isPaletteCancelled) return;
+        isPaletteCancelled = false;
+        RippleUtil.palette(this, mBackgroundDrawable, mBackgroundResId, mPaletteMode);
     }
 
     protected void setScaleType(ImageView.ScaleType scaleType) {
         mScaleType = scaleType;
-        mDrawableBound = null;
+        isDrawableBoundDirty = true;
     }
 
     public void addOnFinishListener(OnFinishListener onFinishListener) {
@@ -381,20 +656,43 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
         mOnFinishListeners.add(onFinishListener);
     }
 
+    public void removeOnFinishListener(OnFinishListener onFinishListener) {
+        if (mOnFinishListeners != null) {
+            mOnFinishListeners.remove(onFinishListener);
+        }
+    }
+
     public void setRippleColor(int rippleColor) {
         mRippleColor = rippleColor;
         mBackgroundColor = RippleUtil.produceBackgroundColor(rippleColor);
     }
 
+    int getRippleColor() {
+        return mRippleColor;
+    }
+
+    int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    int getRippleDuration() {
+        return mState.rippleDuration;
+    }
+
+    int getFadeDuration() {
+        return mState.fadeDuration;
+    }
+
+    Interpolator getInterpolator() {
+        return mState.interpolator;
+    }
+
     private void setClipBound() {
-        if (mClipBound == null) {
-            mClipBound = new Rect(mPaddingLeft, mPaddingTop, mWidth - mPaddingRight, mHeight - mPaddingBottom);
-        } else {
-            mClipBound.set(mPaddingLeft, mPaddingTop, mWidth - mPaddingRight, mHeight - mPaddingBottom);
-        }
+        mClipBound.set(mPaddingLeft, mPaddingTop, mWidth - mPaddingRight, mHeight - mPaddingBottom);
     }
 
     protected Rect getDrawableBound() {
+        if (mBackgroundDrawable != null) updateDrawableBound();
         return mDrawableBound;
     }
 
@@ -402,12 +700,63 @@ public class RippleCompatDrawable extends Drawable implements View.OnTouchListen
         return mClipBound;
     }
 
+    int getBackgroundResId() {
+        return mBackgroundResId;
+    }
+
     protected Drawable getBackgroundDrawable() {
         return mBackgroundDrawable;
     }
 
-    private int getAlphaDelta() {
-        int times = mFadeDuration / RippleUtil.FRAME_INTERVAL + 1;
-        return Color.alpha(mRippleColor) / times;
+    /**
+     * Config-derived state shared by all drawables of a {@link RippleConfig}, see {@link RippleConfig#obtainState()}.
+     * Values that change per drawable, like palette color or radius of a full ripple, are kept by the drawable.
+     * Never modified once created, so {@link #mutate()} keeps sharing it.
+     */
+    static final class RippleState extends ConstantState {
+        final int rippleColor;
+        final int maxRippleRadius;
+        final int maxRippleCount;
+        final int rippleDuration;
+        final int fadeDuration;
+        final Interpolator interpolator;
+        final RippleShapeRenderer shapeRenderer;
+        /* bound of the shape at scale 1. */
+        final RectF shapeBound = new RectF();
+        final RippleUtil.PaletteMode paletteMode;
+        final long paletteKey;
+        final boolean isFull;
+        final boolean isSpin;
+        final boolean isBuiltinPalette;
+        final boolean isRenderThreadAnimated;
+        final RippleFrameScheduler frameScheduler;
+
+        RippleState(RippleConfig config) {
+            rippleColor = config.getRippleColor();
+            maxRippleRadius = config.getMaxRippleRadius();
+            maxRippleCount = config.getMaxRippleCount();
+            rippleDuration = config.getRippleDuration();
+            fadeDuration = config.getFadeDuration();
+            interpolator = config.getInterpolator();
+            shapeRenderer = config.getShapeRenderer();
+            shapeRenderer.getBound(shapeBound);
+            paletteMode = config.getPaletteMode();
+            paletteKey = config.getPaletteKey();
+            isFull = config.isFull();
+            isSpin = config.isSpin();
+            isBuiltinPalette = config.isBuiltinPalette();
+            isRenderThreadAnimated = config.isRenderThreadAnimated();
+            frameScheduler = config.obtainFrameScheduler();
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return new RippleCompatDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
     }
 }
@@ -25,38 +25,88 @@ public class RippleConfig {
     /* background image*/
     private Drawable backgroundDrawable = null;
 
+    /* resource id of background image, resolved when applying*/
+    private int backgroundResId = 0;
+
     /* scale type of background image*/
     private ImageView.ScaleType scaleType = ImageView.ScaleType.FIT_CENTER;
 
     /* max ripple radius. */
     private int maxRippleRadius = RippleUtil.MAX_RIPPLE_RADIUS;
 
+    /* max count of concurrent ripples of a view, the oldest one is evicted when exceeded. */
+    private int maxRippleCount = RippleUtil.RIPPLE_POOL_SIZE;
+
     /* ripple animation interpolator*/
     private Interpolator interpolator = new AccelerateInterpolator();
 
     /* ripple shape type */
     private RippleCompatDrawable.Type type = RippleCompatDrawable.Type.CIRCLE;
 
+    /* custom ripple shape, overrides type if set */
+    private RippleShapeRenderer shapeRenderer = null;
+
     /* true if ripple color with palette of background image.*/
     private boolean isEnablePalette = false;
 
+    /* caller-supplied content hash of background image, keys cached palettes. 0 if none.*/
+    private long paletteKey = 0;
+
+    /* true if palette is extracted by RippleColorExtractor instead of support Palette.*/
+    private boolean isBuiltinPalette = false;
+
     /* true if ripple full of the view, and maxRippleRadius would be ignore. */
     private boolean isFull = false;
 
     /* true if ripple spinning*/
     private boolean isSpin = false;
 
+    /* true if non-circle ripple is drawn as pre-rasterized mask.*/
+    private boolean isSpriteMask = false;
+
+    /* true if ripple animates on the RenderThread when supported.*/
+    private boolean isRenderThreadAnimated = false;
+
+    /* frame source of ripples, null for the one installed by RippleCompat. */
+    private RippleFrameSource frameSource = null;
+
+    /* scheduler of frameSource, created on demand. */
+    private RippleFrameScheduler frameScheduler = null;
+
+    /* state shared by drawables of this config, dropped on any change. */
+    private RippleCompatDrawable.RippleState state = null;
+
     private static RippleConfig dConfig = new RippleConfig();
 
     public static RippleConfig getDefaultConfig(){
         return dConfig;
     }
 
+    /**
+     * @return drawable state of this config, shared by all drawables created from it until it changes.
+     */
+    RippleCompatDrawable.RippleState obtainState() {
+        if (state == null) {
+            state = new RippleCompatDrawable.RippleState(this);
+        }
+        return state;
+    }
+
+    /**
+     * Drop state after a change, drawables pooled for it can't be reused by this config anymore.
+     */
+    private void dropState() {
+        if (state == null) return;
+        RippleDrawablePool.evict(state);
+        state = null;
+    }
+
     public int getRippleDuration() {
         return rippleDuration;
     }
 
     public void setRippleDuration(int rippleDuration) {
+        dropState();
         this.rippleDuration = rippleDuration;
     }
 
@@ -65,6 +115,7 @@ public class RippleConfig {
     }
 
     public void setRippleColor(int rippleColor) {
+        dropState();
         this.rippleColor = rippleColor;
     }
 
@@ -73,6 +124,7 @@ public class RippleConfig {
     }
 
     public void setIsFull(boolean isFull) {
+        dropState();
         this.isFull = isFull;
     }
 
@@ -81,15 +133,32 @@ public class RippleConfig {
     }
 
     public void setMaxRippleRadius(int maxRippleRadius) {
+        dropState();
         if(isFull) return;
         this.maxRippleRadius = maxRippleRadius;
     }
 
+    public int getMaxRippleCount() {
+        return maxRippleCount;
+    }
+
+    /**
+     * Set max count of concurrent ripples of a view, e.g. one per finger. State of the ripples is preallocated,
+     * when all are running the oldest one is evicted. Set 1 to restart the ripple on every touch.
+     *
+     * @param maxRippleCount max count of concurrent ripples, at least 1.
+     */
+    public void setMaxRippleCount(int maxRippleCount) {
+        dropState();
+        this.maxRippleCount = Math.max(1, maxRippleCount);
+    }
+
     public int getFadeDuration() {
         return fadeDuration;
     }
 
     public void setFadeDuration(int fadeDuration) {
+        dropState();
         this.fadeDuration = fadeDuration;
     }
 
@@ -98,38 +167,122 @@ public class RippleConfig {
     }
 
     public void setInterpolator(Interpolator interpolator) {
+        dropState();
         this.interpolator = interpolator;
     }
 
     public void setType(RippleCompatDrawable.Type type) {
+        dropState();
         this.type = type;
     }
 
-    public Path getPath(){
-        switch (type){
+    public RippleCompatDrawable.Type getType() {
+        return type;
+    }
 
-            case CIRCLE:
-                return RipplePathFactory.produceCirclePath();
+    /**
+     * @return shared immutable path of the ripple shape, see {@link RipplePathFactory#obtainPath(RippleCompatDrawable.Type)}.
+     */
+    public Path getPath(){
+        return RipplePathFactory.obtainPath(type);
+    }
 
+    /**
+     * @return renderer of the ripple shape, the custom one if set, otherwise the built-in one of type.
+     */
+    public RippleShapeRenderer getShapeRenderer() {
+        if (shapeRenderer != null) {
+            return shapeRenderer;
+        }
+        switch (type) {
             case HEART:
-                return RipplePathFactory.produceHeartPath();
-
+                return new RippleHeartRenderer(isSpriteMask);
             case TRIANGLE:
-                return RipplePathFactory.produceTrianglePath();
-
+                return new RippleTriangleRenderer(isSpriteMask);
+            case CIRCLE:
             default:
-                return RipplePathFactory.produceCirclePath();
+                return RippleCircleRenderer.INSTANCE;
         }
     }
 
+    /**
+     * Set a custom ripple shape, e.g. {@link RipplePathRenderer} of your own path. Type is ignored if set.
+     *
+     * @param shapeRenderer shape renderer, null to use the built-in shape of type.
+     */
+    public void setShapeRenderer(RippleShapeRenderer shapeRenderer) {
+        dropState();
+        this.shapeRenderer = shapeRenderer;
+    }
+
     public boolean isSpin() {
         return isSpin;
     }
 
     public void setIsSpin(boolean isSpin) {
+        dropState();
         this.isSpin = isSpin;
     }
 
+    public boolean isSpriteMask() {
+        return isSpriteMask;
+    }
+
+    /**
+     * Draw HEART and TRIANGLE ripples as shared ALPHA_8 masks rasterized once per size bucket, instead of
+     * rasterizing the path every frame. See {@link RippleSpriteFactory#measureDifference} for the visual cost.
+     *
+     * @param isSpriteMask true to enable.
+     */
+    public void setIsSpriteMask(boolean isSpriteMask) {
+        dropState();
+        this.isSpriteMask = isSpriteMask;
+    }
+
+    public boolean isRenderThreadAnimated() {
+        return isRenderThreadAnimated;
+    }
+
+    /**
+     * Animate ripple on the RenderThread on API 21+ with hardware acceleration, so it keeps running while the
+     * UI thread is busy. Only CIRCLE ripple without spin is supported, others fall back to canvas drawing.
+     *
+     * @param isRenderThreadAnimated true to enable.
+     */
+    public void setIsRenderThreadAnimated(boolean isRenderThreadAnimated) {
+        dropState();
+        this.isRenderThreadAnimated = isRenderThreadAnimated;
+    }
+
+    public RippleFrameSource getFrameSource() {
+        return frameSource;
+    }
+
+    /**
+     * Animate ripples of this config by their own time and frames, e.g. a {@link RippleManualFrameSource}
+     * in tests. Overrides {@link RippleCompat#setFrameSource(RippleFrameSource)}.
+     *
+     * @param frameSource frame source, null to use the app-wide one.
+     */
+    public void setFrameSource(RippleFrameSource frameSource) {
+        dropState();
+        frameScheduler = null;
+        this.frameSource = frameSource;
+    }
+
+    /**
+     * @return scheduler ticking ripples of this config.
+     */
+    RippleFrameScheduler obtainFrameScheduler() {
+        if (frameSource == null) {
+            return RippleFrameScheduler.getInstance();
+        }
+        if (frameScheduler == null) {
+            frameScheduler = new RippleFrameScheduler(frameSource);
+        }
+        return frameScheduler;
+    }
+
     public Drawable getBackgroundDrawable() {
         return backgroundDrawable;
     }
@@ -140,6 +293,22 @@ public class RippleConfig {
 
     public void setBackgroundDrawable(Drawable backgroundDrawable) {
         this.backgroundDrawable = backgroundDrawable;
+        this.backgroundResId = 0;
+    }
+
+    public int getBackgroundResId() {
+        return backgroundResId;
+    }
+
+    /**
+     * Set background image by resource id, it would be resolved by the context passed to
+     * {@link RippleCompat#init(android.content.Context)}. Palette results are cached by this id.
+     *
+     * @param resId resource id of background image.
+     */
+    public void setBackgroundResource(int resId) {
+        this.backgroundResId = resId;
+        this.backgroundDrawable = null;
     }
 
     public void setScaleType(ImageView.ScaleType scaleType) {
@@ -155,12 +324,43 @@ public class RippleConfig {
     }
 
     public void setPaletteMode(RippleUtil.PaletteMode paletteMode) {
+        dropState();
         if(isEnablePalette) {
             this.paletteMode = paletteMode;
         }
     }
 
     public void setIsEnablePalette(boolean isEnablePalette) {
+        dropState();
         this.isEnablePalette = isEnablePalette;
     }
+
+    public long getPaletteKey() {
+        return paletteKey;
+    }
+
+    /**
+     * Set content hash of the background image. Palette results are cached in memory and, if enabled,
+     * on disk by this key, so it must change when the image content changes.
+     *
+     * @param paletteKey non-zero content hash of the background image.
+     */
+    public void setPaletteKey(long paletteKey) {
+        dropState();
+        this.paletteKey = paletteKey;
+    }
+
+    public boolean isBuiltinPalette() {
+        return isBuiltinPalette;
+    }
+
+    /**
+     * Extract palette with the lightweight {@link RippleColorExtractor} instead of support Palette.
+     *
+     * @param isBuiltinPalette true to use built-in extractor.
+     */
+    public void setIsBuiltinPalette(boolean isBuiltinPalette) {
+        dropState();
+        this.isBuiltinPalette = isBuiltinPalette;
+    }
 }
@@ -0,0 +1,253 @@
+package com.desmond.ripple;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Optional persistent palette cache in app-private storage, so palettes survive process restarts.
+ * <p>
+ * The file is a fixed-size open addressing table which is memory-mapped and read in place, there is no
+ * parsing on startup. Layout:
+ * <pre>
+ * header: magic(4) version(4) capacity(4) header checksum(4)
+ * record: key(8) swatch colors(6 * 4) access stamp(4) checksum(4)
+ * </pre>
+ * A key of 0 marks an empty record. Records failing their checksum are treated as empty, a bad header
+ * recreates the file. When all probed slots of a key are taken, the least recently used one is evicted.
+ * <p>
+ * Keys are either {@link #resourceKey(int)} of a background resource or a caller-supplied content hash,
+ * see {@link RippleConfig#setPaletteKey(long)}, with the top bit flipped for results of the built-in extractor.
+ */
+public class RippleDiskPaletteCache {
+    private static final String TAG = "RippleDiskPaletteCache";
+    public static final String FILE_NAME = "ripple_palette.cache";
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final int MAGIC = 0x52504c43;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int COLOR_COUNT = RippleColorExtractor.RESULT_SIZE - 1;
+    private static final int RECORD_SIZE = 8 + COLOR_COUNT * 4 + 4 + 4;
+    private static final int STAMP_OFFSET = 8 + COLOR_COUNT * 4;
+    private static final int CHECKSUM_OFFSET = STAMP_OFFSET + 4;
+    private static final int MAX_PROBE = 8;
+    /* flipped in keys of results of the built-in extractor. */
+    private static final long BUILTIN_KEY_BIT = 1L << 63;
+
+    private static RippleDiskPaletteCache sInstance = null;
+
+    private final MappedByteBuffer mBuffer;
+    private final int mCapacity;
+    private final int mResourceVersion;
+    private int mClock = -1;
+
+    /**
+     * Enable the disk cache, it would be checked after the memory cache misses.
+     *
+     * @param context  context
+     * @param capacity max count of records, the file size is fixed by it.
+     */
+    public static synchronized void enable(Context context, int capacity) {
+        if (sInstance != null) return;
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        try {
+            sInstance = new RippleDiskPaletteCache(file, capacity, getResourceVersion(context));
+        } catch (IOException e) {
+            Log.e(TAG, "RippleDiskPaletteCache->enable --err log-- can't map " + file, e);
+        }
+    }
+
+    static synchronized RippleDiskPaletteCache getInstance() {
+        return sInstance;
+    }
+
+    private static int getResourceVersion(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return info.versionCode * 31 + (int) (info.lastUpdateTime ^ (info.lastUpdateTime >>> 32));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private RippleDiskPaletteCache(File file, int capacity, int resourceVersion) throws IOException {
+        mCapacity = capacity;
+        mResourceVersion = resourceVersion;
+
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            boolean isValid = raf.length() == size;
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            mBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!isValid || !isHeaderValid()) {
+                reset();
+            }
+        } finally {
+            /* the mapping stays valid after the file is closed. */
+            raf.close();
+        }
+    }
+
+    /**
+     * Key of a background resource, changes with every app update.
+     *
+     * @param resId resource id
+     * @return disk cache key
+     */
+    long resourceKey(int resId) {
+        return ((long) mResourceVersion << 32) | (resId & 0xffffffffL);
+    }
+
+    /**
+     * @param paletteKey caller-supplied content hash, 0 if none.
+     * @param resId      resource id of background, 0 if unknown.
+     * @param isBuiltin  true if extracted by the built-in extractor, false by support Palette.
+     * @return disk cache key, 0 if the background can't be keyed.
+     */
+    long keyOf(long paletteKey, int resId, boolean isBuiltin) {
+        long key = paletteKey != 0 ? paletteKey : resId != 0 ? resourceKey(resId) : 0;
+        if (key == 0 || !isBuiltin) return key;
+        return key ^ BUILTIN_KEY_BIT;
+    }
+
+    /**
+     * @return colors indexed by {@link RippleUtil.PaletteMode#ordinal()}, or null if missing.
+     */
+    synchronized int[] get(long key) {
+        if (key == 0) return null;
+        int slot = findSlot(key);
+        if (slot < 0) return null;
+
+        int position = recordPosition(slot);
+        int[] colors = new int[RippleColorExtractor.RESULT_SIZE];
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            colors[i + 1] = mBuffer.getInt(position + 8 + i * 4);
+        }
+        mBuffer.putInt(position + STAMP_OFFSET, nextStamp());
+        return colors;
+    }
+
+    /**
+     * @param colors colors indexed by {@link RippleUtil.PaletteMode#ordinal()}.
+     */
+    synchronized void put(long key, int[] colors) {
+        if (key == 0) return;
+        int stamp = nextStamp();
+        int slot = findSlot(key);
+        if (slot < 0) slot = findFreeSlot(key);
+
+        int position = recordPosition(slot);
+        mBuffer.putLong(position, key);
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            mBuffer.putInt(position + 8 + i * 4, colors[i + 1]);
+        }
+        mBuffer.putInt(position + STAMP_OFFSET, stamp);
+        mBuffer.putInt(position + CHECKSUM_OFFSET, recordChecksum(position));
+    }
+
+    public synchronized void clear() {
+        reset();
+    }
+
+    private int findSlot(long key) {
+        int start = startSlot(key);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (start + i) % mCapacity;
+            int position = recordPosition(slot);
+            if (mBuffer.getLong(position) != key) continue;
+            if (mBuffer.getInt(position + CHECKSUM_OFFSET) == recordChecksum(position)) {
+                return slot;
+            }
+            /* corrupted record, drop it. */
+            mBuffer.putLong(position, 0);
+            return -1;
+        }
+        return -1;
+    }
+
+    private int findFreeSlot(long key) {
+        int start = startSlot(key);
+        int oldest = start;
+        int oldestStamp = Integer.MAX_VALUE;
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (start + i) % mCapacity;
+            int position = recordPosition(slot);
+            if (mBuffer.getLong(position) == 0
+                    || mBuffer.getInt(position + CHECKSUM_OFFSET) != recordChecksum(position)) {
+                return slot;
+            }
+            int stamp = mBuffer.getInt(position + STAMP_OFFSET);
+            if (stamp < oldestStamp) {
+                oldest = slot;
+                oldestStamp = stamp;
+            }
+        }
+        return oldest;
+    }
+
+    private int startSlot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 33) % mCapacity);
+    }
+
+    private int nextStamp() {
+        if (mClock < 0) {
+            /* restore the clock lazily so opening the file stays cheap. */
+            mClock = 0;
+            for (int slot = 0; slot < mCapacity; slot++) {
+                mClock = Math.max(mClock, mBuffer.getInt(recordPosition(slot) + STAMP_OFFSET));
+            }
+        }
+        if (mClock == Integer.MAX_VALUE) {
+            /* practically unreachable, start over rather than break the LRU order. */
+            reset();
+        }
+        return ++mClock;
+    }
+
+    private static int recordPosition(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    /* checksum of key and colors, the access stamp is excluded so it can be updated in place. */
+    private int recordChecksum(int position) {
+        int hash = 0x811c9dc5;
+        for (int offset = 0; offset < STAMP_OFFSET; offset += 4) {
+            hash = (hash ^ mBuffer.getInt(position + offset)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private int headerChecksum() {
+        return ((MAGIC ^ 0x811c9dc5) * 0x01000193 ^ mBuffer.getInt(4)) * 0x01000193 ^ mBuffer.getInt(8);
+    }
+
+    private boolean isHeaderValid() {
+        return mBuffer.getInt(0) == MAGIC
+                && mBuffer.getInt(4) == VERSION
+                && mBuffer.getInt(8) == mCapacity
+                && mBuffer.getInt(12) == headerChecksum();
+    }
+
+    private void reset() {
+        for (int slot = 0; slot < mCapacity; slot++) {
+            int position = recordPosition(slot);
+            mBuffer.putLong(position, 0);
+            mBuffer.putInt(position + STAMP_OFFSET, 0);
+        }
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(8, mCapacity);
+        mBuffer.putInt(12, headerChecksum());
+        mClock = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.desmond.ripple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pool of unbound {@link RippleCompatDrawable}s keyed by their shared state, so views created for a list
+ * reuse drawables of views dropped before. Disabled unless {@link RippleCompat#setDrawablePoolSize(int)} is
+ * called. Drawables of a state are dropped once its config changes, and drawables of the least recently used
+ * states once more than {@link #MAX_STATE_COUNT} states are pooled, e.g. of configs no longer used. Main
+ * thread only.
+ */
+class RippleDrawablePool {
+    static final int MAX_STATE_COUNT = 8;
+
+    private static final LinkedHashMap<RippleCompatDrawable.RippleState, ArrayList<RippleCompatDrawable>> sPool =
+            new LinkedHashMap<RippleCompatDrawable.RippleState, ArrayList<RippleCompatDrawable>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<RippleCompatDrawable.RippleState, ArrayList<RippleCompatDrawable>> eldest) {
+                    return size() > MAX_STATE_COUNT;
+                }
+            };
+    private static int sMaxSize = 0;
+
+    static void setMaxSize(int maxSize) {
+        sMaxSize = maxSize;
+        if (maxSize <= 0) {
+            sPool.clear();
+            return;
+        }
+        for (ArrayList<RippleCompatDrawable> drawables : sPool.values()) {
+            while (drawables.size() > maxSize) {
+                drawables.remove(drawables.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Drop drawables pooled for state.
+     */
+    static void evict(RippleCompatDrawable.RippleState state) {
+        sPool.remove(state);
+    }
+
+    /**
+     * @return a recycled drawable of state, or null if none.
+     */
+    static RippleCompatDrawable acquire(RippleCompatDrawable.RippleState state) {
+        ArrayList<RippleCompatDrawable> drawables = sPool.get(state);
+        if (drawables == null || drawables.isEmpty()) return null;
+        return drawables.remove(drawables.size() - 1);
+    }
+
+    /**
+     * @param drawable drawable already reset by {@link RippleCompatDrawable#recycle()}.
+     */
+    static void release(RippleCompatDrawable drawable) {
+        if (sMaxSize <= 0) return;
+        RippleCompatDrawable.RippleState state = (RippleCompatDrawable.RippleState) drawable.getConstantState();
+        ArrayList<RippleCompatDrawable> drawables = sPool.get(state);
+        if (drawables == null) {
+            drawables = new ArrayList<>(sMaxSize);
+            sPool.put(state, drawables);
+        }
+        if (drawables.size() < sMaxSize) drawables.add(drawable);
+    }
+}
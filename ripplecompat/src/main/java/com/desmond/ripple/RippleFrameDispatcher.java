@@ -0,0 +1,96 @@
+package com.desmond.ripple;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Callback list behind {@link RippleFrameScheduler}, free of Android dependencies so it can be benchmarked on
+ * a plain JVM. Public for the benchmark module only, apps don't need it.
+ * <p>
+ * Registering, unregistering and checking a callback are constant time, so starting or finishing a ripple
+ * doesn't get slower with the number of running ones. Unregistered callbacks are only marked, and dropped
+ * from the list after the next frame, or earlier once they are the majority.
+ * <p>
+ * Not thread safe.
+ */
+public class RippleFrameDispatcher {
+
+    public interface Callback {
+        /**
+         * Called once per frame.
+         *
+         * @param frameTimeMillis frame time in milliseconds.
+         * @return true to keep receiving frames, false to be unregistered.
+         */
+        boolean doFrame(long frameTimeMillis);
+    }
+
+    /* registration order, may hold unregistered callbacks until compacted. */
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    /* TRUE if registered, FALSE if unregistered but still in mCallbacks. */
+    private final IdentityHashMap<Callback, Boolean> mStates = new IdentityHashMap<>();
+    private int mRegisteredCount = 0;
+    private boolean isDispatching = false;
+
+    public void register(Callback callback) {
+        Boolean state = mStates.put(callback, Boolean.TRUE);
+        if (state == Boolean.TRUE) return;
+        if (state == null) mCallbacks.add(callback);
+        mRegisteredCount++;
+    }
+
+    public void unregister(Callback callback) {
+        if (mStates.get(callback) != Boolean.TRUE) return;
+        mStates.put(callback, Boolean.FALSE);
+        mRegisteredCount--;
+        if (!isDispatching && mRegisteredCount < mCallbacks.size() / 2) compact();
+    }
+
+    public boolean isRegistered(Callback callback) {
+        return mStates.get(callback) == Boolean.TRUE;
+    }
+
+    public boolean isEmpty() {
+        return mRegisteredCount == 0;
+    }
+
+    public int size() {
+        return mRegisteredCount;
+    }
+
+    /**
+     * Tick every registered callback once.
+     *
+     * @return true if any callback is still registered.
+     */
+    public boolean dispatch(long frameTimeMillis) {
+        isDispatching = true;
+        /* callbacks registered during dispatch are appended and ticked on the next frame. */
+        int count = mCallbacks.size();
+        for (int i = 0; i < count; i++) {
+            Callback callback = mCallbacks.get(i);
+            if (mStates.get(callback) != Boolean.TRUE) continue;
+            if (!callback.doFrame(frameTimeMillis)) unregister(callback);
+        }
+        isDispatching = false;
+
+        if (mRegisteredCount < mCallbacks.size()) compact();
+        return mRegisteredCount > 0;
+    }
+
+    private void compact() {
+        int size = mCallbacks.size();
+        int dest = 0;
+        for (int i = 0; i < size; i++) {
+            Callback callback = mCallbacks.get(i);
+            if (mStates.get(callback) == Boolean.TRUE) {
+                mCallbacks.set(dest++, callback);
+            } else {
+                mStates.remove(callback);
+            }
+        }
+        for (int i = size - 1; i >= dest; i--) {
+            mCallbacks.remove(i);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.desmond.ripple;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Frame scheduler shared by running ripples, one app-wide and one per {@link RippleConfig} with its own
+ * frame source.
+ * <p>
+ * Ripples register a {@link FrameCallback} while they are expanding or fading and are ticked exactly once
+ * per frame of the {@link RippleFrameSource}. The system source follows {@link Choreographer} on API 16+, so
+ * ticks follow the real vsync and refresh rate; older platforms fall back to a single main looper
+ * {@link Handler}.
+ * <p>
+ * Must only be used from the main thread.
+ */
+class RippleFrameScheduler {
+
+    interface FrameCallback extends RippleFrameDispatcher.Callback {
+        /**
+         * Called once per frame.
+         *
+         * @param frameTimeMillis frame time in {@link #uptimeMillis()} time base.
+         * @return true to keep receiving frames, false to be unregistered.
+         */
+        @Override
+        boolean doFrame(long frameTimeMillis);
+    }
+
+    private static RippleFrameScheduler sInstance;
+    private static RippleFrameSource sSystemFrameSource;
+
+    private final RippleFrameDispatcher mDispatcher = new RippleFrameDispatcher();
+    private RippleFrameSource mFrameSource;
+    /* target of the current frame source, replaced with the source so a stale frame is ignored. */
+    private Target mTarget;
+    private boolean isScheduled = false;
+    /* time of last frame dispatched, 0 if no callback was registered. */
+    private long mLastFrameTime = 0;
+
+    static RippleFrameScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new RippleFrameScheduler(null);
+        }
+        return sInstance;
+    }
+
+    private static RippleFrameSource getSystemFrameSource() {
+        if (sSystemFrameSource == null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                sSystemFrameSource = new ChoreographerFrameSource();
+            } else {
+                sSystemFrameSource = new HandlerFrameSource();
+            }
+        }
+        return sSystemFrameSource;
+    }
+
+    /**
+     * @param frameSource frame source, null for the system one.
+     */
+    RippleFrameScheduler(RippleFrameSource frameSource) {
+        setFrameSource(frameSource);
+    }
+
+    /**
+     * Switch frame source, registered callbacks are ticked by the new one from its next frame.
+     *
+     * @param frameSource frame source, null for the system one.
+     */
+    void setFrameSource(RippleFrameSource frameSource) {
+        mFrameSource = frameSource != null ? frameSource : getSystemFrameSource();
+        mTarget = new Target();
+        isScheduled = false;
+        mLastFrameTime = 0;
+        scheduleFrame();
+    }
+
+    /**
+     * @return true if frames follow the display and time is {@link SystemClock#uptimeMillis()}.
+     */
+    boolean isSystemFrameSource() {
+        return mFrameSource == sSystemFrameSource;
+    }
+
+    /**
+     * @return current time of the frame source.
+     */
+    long uptimeMillis() {
+        return mFrameSource.uptimeMillis();
+    }
+
+    void register(FrameCallback callback) {
+        mDispatcher.register(callback);
+        scheduleFrame();
+    }
+
+    void unregister(FrameCallback callback) {
+        mDispatcher.unregister(callback);
+    }
+
+    boolean isRegistered(FrameCallback callback) {
+        return mDispatcher.isRegistered(callback);
+    }
+
+    private void scheduleFrame() {
+        if (isScheduled || mDispatcher.isEmpty()) return;
+        isScheduled = true;
+        mFrameSource.postFrame(mTarget);
+    }
+
+    private void onFrame(long frameTimeMillis) {
+        isScheduled = false;
+        /* global pacing is recorded once per frame, however many ripples are running. */
+        if (RippleMetrics.isEnabled() && mLastFrameTime != 0) {
+            RippleMetrics.getGlobal().recordFrameInterval(frameTimeMillis - mLastFrameTime);
+        }
+        mLastFrameTime = mDispatcher.dispatch(frameTimeMillis) ? frameTimeMillis : 0;
+        scheduleFrame();
+    }
+
+    private class Target implements RippleFrameSource.FrameTarget {
+        @Override
+        public void onFrame(long frameTimeMillis) {
+            if (this == mTarget) RippleFrameScheduler.this.onFrame(frameTimeMillis);
+        }
+    }
+
+    /**
+     * System frame source, targets posted before a frame are called on it in order.
+     */
+    private static abstract class SystemFrameSource implements RippleFrameSource {
+        private final ArrayList<FrameTarget> mPending = new ArrayList<>();
+        private final ArrayList<FrameTarget> mFiring = new ArrayList<>();
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public void postFrame(FrameTarget target) {
+            mPending.add(target);
+            if (mPending.size() == 1) postSystemFrame();
+        }
+
+        abstract void postSystemFrame();
+
+        void onSystemFrame(long frameTimeMillis) {
+            /* copied by index, addAll would allocate an array every frame. */
+            for (int i = 0; i < mPending.size(); i++) {
+                mFiring.add(mPending.get(i));
+            }
+            mPending.clear();
+            for (int i = 0; i < mFiring.size(); i++) {
+                mFiring.get(i).onFrame(frameTimeMillis);
+            }
+            mFiring.clear();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameSource extends SystemFrameSource implements Choreographer.FrameCallback {
+        private Choreographer mChoreographer;
+
+        @Override
+        void postSystemFrame() {
+            if (mChoreographer == null) mChoreographer = Choreographer.getInstance();
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onSystemFrame(frameTimeNanos / 1000000L);
+        }
+    }
+
+    private static class HandlerFrameSource extends SystemFrameSource implements Runnable {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        void postSystemFrame() {
+            mHandler.postDelayed(this, RippleUtil.FRAME_INTERVAL);
+        }
+
+        @Override
+        public void run() {
+            onSystemFrame(SystemClock.uptimeMillis());
+        }
+    }
+}
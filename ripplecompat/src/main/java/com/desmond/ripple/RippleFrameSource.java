@@ -0,0 +1,29 @@
+package com.desmond.ripple;
+
+/**
+ * Time and frames ripples are animated by, see {@link RippleCompat#setFrameSource(RippleFrameSource)} and
+ * {@link RippleConfig#setFrameSource(RippleFrameSource)}. The default follows the display vsync and
+ * {@code SystemClock.uptimeMillis()}, {@link RippleManualFrameSource} steps simulated frames for tests and
+ * benchmarks.
+ * <p>
+ * Called on the main thread only.
+ */
+public interface RippleFrameSource {
+
+    interface FrameTarget {
+        /**
+         * @param frameTimeMillis frame time in the time base of {@link #uptimeMillis()}.
+         */
+        void onFrame(long frameTimeMillis);
+    }
+
+    /**
+     * @return current time in milliseconds, ripples are started and faded at this time.
+     */
+    long uptimeMillis();
+
+    /**
+     * Call target once on the next frame.
+     */
+    void postFrame(FrameTarget target);
+}
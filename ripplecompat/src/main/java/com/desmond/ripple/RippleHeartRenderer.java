@@ -0,0 +1,42 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Renderer of {@link RippleCompatDrawable.Type#HEART}. The control points of its two cubics are precomputed,
+ * then transformed and rebuilt into one reused path in view coordinates, so the canvas is never transformed
+ * and the path is rasterized at the size it's drawn. Drawn from masks of {@link RippleSpriteFactory} when
+ * sprite mask is enabled.
+ */
+class RippleHeartRenderer implements RippleShapeRenderer {
+    /* points at scale 1. */
+    private final float[] mControlPoints = RipplePathFactory.heartPoints();
+    /* scratch of draw, renderers are only used on the main thread. */
+    private final float[] mPoints = new float[mControlPoints.length];
+    private final Path mPath = new Path();
+    private final boolean isSpriteMask;
+
+    RippleHeartRenderer(boolean isSpriteMask) {
+        this.isSpriteMask = isSpriteMask;
+    }
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, float x, float y, float scale, float degree) {
+        if (isSpriteMask && RippleSpriteFactory.drawSprite(RippleCompatDrawable.Type.HEART, canvas, paint,
+                x, y, scale, degree)) {
+            return;
+        }
+        RippleMath.transformPoints(mControlPoints, mPoints, x, y, scale, degree);
+        mPath.rewind();
+        RipplePathFactory.addHeart(mPath, mPoints);
+        canvas.drawPath(mPath, paint);
+    }
+
+    @Override
+    public void getBound(RectF outBound) {
+        RipplePathFactory.obtainPath(RippleCompatDrawable.Type.HEART).computeBounds(outBound, true);
+    }
+}
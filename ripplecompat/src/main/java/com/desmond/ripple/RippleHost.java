@@ -0,0 +1,335 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.MotionEventCompat;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+/**
+ * Serves ripples of all descendants of a container with a few drawables, instead of one
+ * {@link RippleCompatDrawable} and touch listener per child. Useful for grids of many tappable cells, where
+ * only one or two ripple at a time.
+ * <p>
+ * The host only observes touches, the container and its children keep handling them, so scrolling children
+ * like a {@code RecyclerView} still scroll. Each pointer landing on a target view starts a ripple, drawn in
+ * container coordinates and clipped to the bound of the target, following it when a view in between scrolls.
+ * A pointer moving further than touch slop drops its ripple, e.g. when a drag starts scrolling. A pointer lifted
+ * within slop cancels the touch of its target and performs click on it when the ripple finished, like
+ * {@link RippleCompat#apply(View, RippleConfig)} does.
+ * The container has to forward {@link #onDispatchTouchEvent(MotionEvent)} (before dispatching) and
+ * {@link #draw(Canvas)} (after drawing children), {@link RippleHostLayout} does it.
+ * <p>
+ * Background images and palette are not supported, ripples use the color of config.
+ */
+public class RippleHost {
+    public static final int DEFAULT_SLOT_COUNT = 2;
+
+    private final ViewGroup mContainer;
+    private final Slot[] mSlots;
+    private RippleCompat.ViewFilter mFilter = new RippleCompat.ViewFilter() {
+        @Override
+        public boolean accept(View v) {
+            return v.isClickable() && v.isEnabled();
+        }
+    };
+    private final int mTouchSlop;
+    /* offset of the target found by findTarget, relative to the visible area of container. */
+    private int mTargetLeft;
+    private int mTargetTop;
+    /* start order of slots, to find the oldest one. */
+    private int mSequence = 0;
+    /* dispatched to cancel the touch of a target, reused so lifting a pointer doesn't allocate. */
+    private final MotionEvent mCancelEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_CANCEL, 0, 0, 0);
+
+    public RippleHost(ViewGroup container, RippleConfig config) {
+        this(container, config, DEFAULT_SLOT_COUNT);
+    }
+
+    /**
+     * @param container container of the target views.
+     * @param config    ripple config.
+     * @param slotCount max count of targets rippling at the same time, the oldest is dropped when exceeded.
+     */
+    public RippleHost(ViewGroup container, RippleConfig config, int slotCount) {
+        mContainer = container;
+        mTouchSlop = ViewConfiguration.get(container.getContext()).getScaledTouchSlop();
+        mSlots = new Slot[Math.max(1, slotCount)];
+        for (int i = 0; i < mSlots.length; i++) {
+            mSlots[i] = new Slot(new RippleCompatDrawable(config));
+        }
+    }
+
+    /**
+     * Set which descendants ripple, default accepts enabled clickable views.
+     *
+     * @param filter filter of target views.
+     */
+    public void setFilter(RippleCompat.ViewFilter filter) {
+        mFilter = filter;
+    }
+
+    /**
+     * Observe a touch event before the container dispatches it, the event is not consumed.
+     */
+    public void onDispatchTouchEvent(MotionEvent event) {
+        int index;
+        switch (MotionEventCompat.getActionMasked(event)) {
+            case MotionEvent.ACTION_DOWN:
+                /* pointers of an interrupted gesture. */
+                cancelPointers();
+                press(event, 0);
+                break;
+
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+                press(event, MotionEventCompat.getActionIndex(event));
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                for (int p = 0; p < MotionEventCompat.getPointerCount(event); p++) {
+                    Slot slot = findSlot(MotionEventCompat.getPointerId(event, p));
+                    if (slot == null) continue;
+                    float x = MotionEventCompat.getX(event, p);
+                    float y = MotionEventCompat.getY(event, p);
+                    if (Math.abs(x - slot.downX) > mTouchSlop || Math.abs(y - slot.downY) > mTouchSlop) {
+                        slot.release(false);
+                    } else {
+                        slot.followTarget();
+                        slot.drawable.movePointer(slot.pointerId, x + mContainer.getScrollX() - slot.left,
+                                y + mContainer.getScrollY() - slot.top);
+                    }
+                }
+                break;
+
+            case MotionEventCompat.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                index = MotionEventCompat.getActionIndex(event);
+                Slot slot = findSlot(MotionEventCompat.getPointerId(event, index));
+                if (slot != null) {
+                    /* the click is performed when the ripple finished, not by the target. */
+                    cancelTouch(slot.target);
+                    slot.release(true);
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                cancelPointers();
+                break;
+        }
+    }
+
+    private void press(MotionEvent event, int index) {
+        float x = MotionEventCompat.getX(event, index);
+        float y = MotionEventCompat.getY(event, index);
+        View target = findTarget(mContainer, x, y);
+        if (target == null) return;
+        Slot slot = obtainSlot();
+        slot.bind(target, mTargetLeft + mContainer.getScrollX(), mTargetTop + mContainer.getScrollY());
+        slot.press(MotionEventCompat.getPointerId(event, index), x, y);
+    }
+
+    private Slot findSlot(int pointerId) {
+        for (Slot slot : mSlots) {
+            if (slot.target != null && slot.pointerId == pointerId) return slot;
+        }
+        return null;
+    }
+
+    private void cancelPointers() {
+        for (Slot slot : mSlots) {
+            if (slot.pointerId != RipplePool.NO_POINTER) slot.release(false);
+        }
+    }
+
+    private void cancelTouch(View target) {
+        /* dispatch may have offset it. */
+        mCancelEvent.setAction(MotionEvent.ACTION_CANCEL);
+        mCancelEvent.setLocation(0, 0);
+        target.dispatchTouchEvent(mCancelEvent);
+    }
+
+    /**
+     * Draw running ripples, call it after drawing children of the container, e.g. at the end of
+     * {@code dispatchDraw}.
+     */
+    public void draw(Canvas canvas) {
+        for (Slot slot : mSlots) {
+            if (slot.target == null || !slot.drawable.isRunning()) continue;
+            /* the container is drawn again after it or a descendant scrolled. */
+            slot.updateOffset();
+            int count = canvas.save();
+            canvas.translate(slot.left, slot.top);
+            slot.drawable.draw(canvas);
+            canvas.restoreToCount(count);
+        }
+    }
+
+    /**
+     * Drop all ripples, e.g. when the container is detached.
+     */
+    public void finishRipples() {
+        for (Slot slot : mSlots) {
+            slot.drawable.finishRipple();
+            slot.target = null;
+            slot.pointerId = RipplePool.NO_POINTER;
+            slot.isClickPending = false;
+        }
+        mContainer.invalidate();
+    }
+
+    /**
+     * @return deepest visible descendant at x, y accepted by filter, its offset is set to mTargetLeft and
+     * mTargetTop.
+     */
+    private View findTarget(ViewGroup group, float x, float y) {
+        for (int i = group.getChildCount() - 1; i >= 0; i--) {
+            View child = group.getChildAt(i);
+            if (child.getVisibility() != View.VISIBLE) continue;
+            float childX = x + group.getScrollX() - child.getLeft();
+            float childY = y + group.getScrollY() - child.getTop();
+            if (childX < 0 || childY < 0 || childX >= child.getWidth() || childY >= child.getHeight()) continue;
+
+            int offsetLeft = child.getLeft() - group.getScrollX();
+            int offsetTop = child.getTop() - group.getScrollY();
+            if (child instanceof ViewGroup) {
+                View target = findTarget((ViewGroup) child, childX, childY);
+                if (target != null) {
+                    mTargetLeft += offsetLeft;
+                    mTargetTop += offsetTop;
+                    return target;
+                }
+            }
+            if (mFilter.accept(child)) {
+                mTargetLeft = offsetLeft;
+                mTargetTop = offsetTop;
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return an idle slot, or the one started earliest. A click pending on the dropped ripple is performed
+     * right away.
+     */
+    private Slot obtainSlot() {
+        Slot oldest = mSlots[0];
+        for (Slot slot : mSlots) {
+            if (slot.target == null || !slot.drawable.isRunning()) return slot;
+            if (slot.sequence < oldest.sequence) oldest = slot;
+        }
+        oldest.drawable.finishRipple();
+        oldest.pointerId = RipplePool.NO_POINTER;
+        if (oldest.isClickPending) oldest.onFinish();
+        return oldest;
+    }
+
+    private final class Slot implements Drawable.Callback, RippleCompatDrawable.OnFinishListener {
+        private final RippleCompatDrawable drawable;
+        private View target;
+        /* offset of target in content coordinates of container. */
+        private int left;
+        private int top;
+        private int sequence;
+        /* pointer the ripple follows, NO_POINTER once lifted or dropped. */
+        private int pointerId = RipplePool.NO_POINTER;
+        /* pointer down position in container coordinates, to check touch slop. */
+        private float downX;
+        private float downY;
+        /* true if target is clicked when the ripple finished. */
+        private boolean isClickPending;
+
+        private Slot(RippleCompatDrawable drawable) {
+            this.drawable = drawable;
+            drawable.setCallback(this);
+            drawable.addOnFinishListener(this);
+        }
+
+        private void bind(View target, int left, int top) {
+            this.target = target;
+            this.left = left;
+            this.top = top;
+            sequence = ++mSequence;
+            drawable.setBounds(0, 0, target.getWidth(), target.getHeight());
+        }
+
+        private void press(int pointerId, float x, float y) {
+            this.pointerId = pointerId;
+            downX = x;
+            downY = y;
+            isClickPending = false;
+            drawable.pressPointer(pointerId, x + mContainer.getScrollX() - left, y + mContainer.getScrollY() - top);
+        }
+
+        /**
+         * Re-read the offset of target, and invalidate both the old and new bound if it moved.
+         */
+        private void followTarget() {
+            int oldLeft = left;
+            int oldTop = top;
+            if (!updateOffset()) return;
+            mContainer.invalidate(oldLeft, oldTop, oldLeft + target.getWidth(), oldTop + target.getHeight());
+            invalidateDrawable(drawable);
+        }
+
+        /**
+         * Re-read the offset of target in content coordinates of container, it changes when a view between
+         * them scrolls or lays out again. The last offset is kept once target is detached from container.
+         *
+         * @return true if it changed.
+         */
+        private boolean updateOffset() {
+            int targetLeft = 0;
+            int targetTop = 0;
+            View v = target;
+            while (v != mContainer) {
+                ViewParent parent = v.getParent();
+                if (!(parent instanceof View)) return false;
+                View group = (View) parent;
+                targetLeft += v.getLeft();
+                targetTop += v.getTop();
+                if (group != mContainer) {
+                    targetLeft -= group.getScrollX();
+                    targetTop -= group.getScrollY();
+                }
+                v = group;
+            }
+            if (targetLeft == left && targetTop == top) return false;
+            left = targetLeft;
+            top = targetTop;
+            return true;
+        }
+
+        private void release(boolean notify) {
+            drawable.releasePointer(pointerId, notify);
+            pointerId = RipplePool.NO_POINTER;
+            isClickPending = notify;
+        }
+
+        @Override
+        public void onFinish() {
+            if (!isClickPending) return;
+            isClickPending = false;
+            if (target != null) RippleCompat.performRippleClick(target);
+        }
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            if (target == null) return;
+            mContainer.invalidate(left, top, left + target.getWidth(), top + target.getHeight());
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+            mContainer.scheduleDrawable(who, what, when);
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+            mContainer.unscheduleDrawable(who, what);
+        }
+    }
+}
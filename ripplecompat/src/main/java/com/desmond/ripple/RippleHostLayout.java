@@ -0,0 +1,57 @@
+package com.desmond.ripple;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.widget.FrameLayout;
+
+/**
+ * FrameLayout serving ripples of all its descendants with a {@link RippleHost}, e.g. wrap a grid with it and
+ * call {@link #setRippleConfig(RippleConfig)}.
+ */
+public class RippleHostLayout extends FrameLayout {
+    private RippleHost mRippleHost;
+
+    public RippleHostLayout(Context context) {
+        super(context);
+    }
+
+    public RippleHostLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public RippleHostLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public void setRippleConfig(RippleConfig config) {
+        if (mRippleHost != null) mRippleHost.finishRipples();
+        mRippleHost = config != null ? new RippleHost(this, config) : null;
+    }
+
+    /**
+     * @return ripple host, null until a config is set.
+     */
+    public RippleHost getRippleHost() {
+        return mRippleHost;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (mRippleHost != null) mRippleHost.onDispatchTouchEvent(ev);
+        return super.dispatchTouchEvent(ev);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mRippleHost != null) mRippleHost.draw(canvas);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mRippleHost != null) mRippleHost.finishRipples();
+    }
+}
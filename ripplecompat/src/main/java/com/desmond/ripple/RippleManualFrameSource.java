@@ -0,0 +1,76 @@
+package com.desmond.ripple;
+
+import java.util.ArrayList;
+
+/**
+ * Frame source stepped by hand, so ripple animations can be simulated faster than real time with exact
+ * frame times, e.g.
+ * <pre>
+ * RippleManualFrameSource frames = new RippleManualFrameSource();
+ * config.setFrameSource(frames);
+ * ...
+ * frames.step(60, RippleUtil.FRAME_INTERVAL);
+ * </pre>
+ * Ripples animated by it never run on the RenderThread.
+ */
+public class RippleManualFrameSource implements RippleFrameSource {
+    private final ArrayList<FrameTarget> mPending = new ArrayList<>();
+    private final ArrayList<FrameTarget> mFiring = new ArrayList<>();
+    private long mTime = 0;
+
+    @Override
+    public long uptimeMillis() {
+        return mTime;
+    }
+
+    /**
+     * Move current time without producing a frame, e.g. to simulate a stalled main thread.
+     *
+     * @param timeMillis new current time.
+     */
+    public void setTime(long timeMillis) {
+        mTime = timeMillis;
+    }
+
+    @Override
+    public void postFrame(FrameTarget target) {
+        mPending.add(target);
+    }
+
+    /**
+     * @return true if a frame was requested since last step.
+     */
+    public boolean hasPendingFrame() {
+        return !mPending.isEmpty();
+    }
+
+    /**
+     * Advance time and produce one frame. Frames requested while producing it are produced on next step.
+     *
+     * @param intervalMillis time since last frame.
+     */
+    public void step(long intervalMillis) {
+        mTime += intervalMillis;
+        /* copied by index, addAll would allocate an array every frame. */
+        for (int i = 0; i < mPending.size(); i++) {
+            mFiring.add(mPending.get(i));
+        }
+        mPending.clear();
+        for (int i = 0; i < mFiring.size(); i++) {
+            mFiring.get(i).onFrame(mTime);
+        }
+        mFiring.clear();
+    }
+
+    /**
+     * Produce frames at a fixed interval.
+     *
+     * @param frames         count of frames.
+     * @param intervalMillis time between frames.
+     */
+    public void step(int frames, long intervalMillis) {
+        for (int i = 0; i < frames; i++) {
+            step(intervalMillis);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.desmond.ripple;
+
+/**
+ * Pure math behind {@link RippleUtil} and the ripple animation of {@link RippleCompatDrawable}: image bounds of
+ * scale types, ripple colors and per-frame progress. It works on primitives only and has no Android
+ * dependency, so it runs on a plain JVM, e.g. in the benchmark module.
+ */
+public final class RippleMath {
+    /* scale modes, in the order of ImageView.ScaleType. */
+    public static final int MATRIX = 0;
+    public static final int FIT_XY = 1;
+    public static final int FIT_START = 2;
+    public static final int FIT_CENTER = 3;
+    public static final int FIT_END = 4;
+    public static final int CENTER = 5;
+    public static final int CENTER_CROP = 6;
+    public static final int CENTER_INSIDE = 7;
+
+    public static final int ANCHOR_START = 1;
+    public static final int ANCHOR_END = -1;
+
+    public static final int BACKGROUND_OFFSET = 56;
+    /* a pressed ripple expands at 1/PRESSED_SLOWDOWN speed. */
+    public static final int PRESSED_SLOWDOWN = 5;
+    /* degree a spinning ripple turns during expansion. */
+    public static final float SPIN_DEGREE = 480f;
+
+    private RippleMath() {
+    }
+
+    /**
+     * Get image bound in a container after scale mode.
+     *
+     * @param scaleMode scale mode, one of {@link #MATRIX} to {@link #CENTER_INSIDE}.
+     * @param w         image width.
+     * @param h         image height.
+     * @param out       left, top, right and bottom of the result.
+     */
+    public static void getBound(int scaleMode, int left, int top, int right, int bottom, int w, int h, int[] out) {
+        int width = right - left;
+        int height = bottom - top;
+        if (width == w && height == h) {
+            set(out, left, top, right, bottom);
+            return;
+        }
+
+        switch (scaleMode) {
+            case CENTER:
+                center(left, top, right, bottom, w, h, 1f, 0, out);
+                return;
+
+            case CENTER_CROP:
+                center(left, top, right, bottom, w, h,
+                        compareScale(width, height, w, h) >= 0 ? (float) width / w : (float) height / h, 0, out);
+                return;
+
+            case CENTER_INSIDE:
+                if (width >= w && height >= h) {
+                    center(left, top, right, bottom, w, h, 1f, 0, out);
+                } else {
+                    center(left, top, right, bottom, w, h, fitScale(width, height, w, h), 0, out);
+                }
+                return;
+
+            case FIT_END:
+                center(left, top, right, bottom, w, h, fitScale(width, height, w, h), ANCHOR_END, out);
+                return;
+
+            case FIT_START:
+                center(left, top, right, bottom, w, h, fitScale(width, height, w, h), ANCHOR_START, out);
+                return;
+
+            case FIT_CENTER:
+                center(left, top, right, bottom, w, h, fitScale(width, height, w, h), 0, out);
+                return;
+
+            case MATRIX:
+                set(out, left, top, left + w, top + h);
+                return;
+
+            case FIT_XY:
+            default:
+                set(out, left, top, right, bottom);
+        }
+    }
+
+    /**
+     * @return scale fitting a w * h image inside a width * height container.
+     */
+    public static float fitScale(int width, int height, int w, int h) {
+        return compareScale(width, height, w, h) >= 0 ? (float) height / h : (float) width / w;
+    }
+
+    /**
+     * Compare aspect ratio of a width * height container with a w * h image.
+     */
+    public static int compareScale(int width, int height, int w, int h) {
+        return Float.compare(width / (float) height, w / (float) h);
+    }
+
+    /**
+     * Center a w * h area scaled by scale in a container.
+     *
+     * @param anchor 0, {@link #ANCHOR_START} or {@link #ANCHOR_END} to align horizontally.
+     * @param out    left, top, right and bottom of the result.
+     */
+    public static void center(int left, int top, int right, int bottom, int w, int h, float scale, int anchor,
+                              int[] out) {
+        w = (int) (w * scale);
+        h = (int) (h * scale);
+        int width = right - left;
+
+        int l = left + (width - w) / 2;
+        int t = top + (bottom - top - h) / 2;
+
+        int offset = 0;
+        if (anchor == ANCHOR_START) {
+            offset = left - l;
+        } else if (anchor == ANCHOR_END) {
+            offset = width - w - l;
+        }
+        set(out, l + offset, t, l + w + offset, t + h);
+    }
+
+    private static void set(int[] out, int left, int top, int right, int bottom) {
+        out[0] = left;
+        out[1] = top;
+        out[2] = right;
+        out[3] = bottom;
+    }
+
+    public static int alphaColor(int color, int alpha) {
+        return (alpha << 24) | 0xffffff & color;
+    }
+
+    /**
+     * @return background tint of a ripple color, every channel moved by {@link #BACKGROUND_OFFSET} toward
+     * the middle.
+     */
+    public static int produceBackgroundColor(int rippleColor) {
+        int a = rippleColor >>> 24;
+        int r = makeOffset((rippleColor >> 16) & 0xff);
+        int g = makeOffset((rippleColor >> 8) & 0xff);
+        int b = makeOffset(rippleColor & 0xff);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    public static int makeOffset(int value) {
+        int dest = value < 128 ? value + BACKGROUND_OFFSET : value - BACKGROUND_OFFSET;
+        if (dest < 0) {
+            return 0;
+        } else if (dest > 255) {
+            return 255;
+        } else {
+            return dest;
+        }
+    }
+
+    /**
+     * @return elapsed time of a pressed ripple, it expands at 1/{@link #PRESSED_SLOWDOWN} speed.
+     */
+    public static long pressedElapsed(long elapsed) {
+        return elapsed / PRESSED_SLOWDOWN;
+    }
+
+    /**
+     * @return time offset remembered while pressed, so a released ripple continues from the same progress.
+     */
+    public static long pressedOffset(long pressedElapsed) {
+        return pressedElapsed * (PRESSED_SLOWDOWN - 1);
+    }
+
+    /**
+     * @return progress of expansion or fading, from 0 to 1.
+     */
+    public static float progress(long elapsed, int duration) {
+        return Math.min(1f, (float) elapsed / duration);
+    }
+
+    /**
+     * @param interpolated interpolated progress of expansion.
+     * @return scale of the ripple shape, whose radius is minRadius at scale 1.
+     */
+    public static float rippleScale(int maxRadius, int minRadius, float interpolated) {
+        return (maxRadius - minRadius) / minRadius * interpolated + 1f;
+    }
+
+    public static float spinDegree(float progress) {
+        return progress * SPIN_DEGREE;
+    }
+
+    /**
+     * Scale, rotate and translate points of a shape centered at origin, in that order, like a canvas
+     * translated to x, y, scaled and rotated.
+     *
+     * @param src x, y pairs of the shape at scale 1.
+     * @param dst x, y pairs of the result, as long as src.
+     */
+    public static void transformPoints(float[] src, float[] dst, float x, float y, float scale, float degree) {
+        float cos = scale;
+        float sin = 0f;
+        if (degree != 0f) {
+            double radians = Math.toRadians(degree);
+            cos = (float) Math.cos(radians) * scale;
+            sin = (float) Math.sin(radians) * scale;
+        }
+        for (int i = 0; i < src.length; i += 2) {
+            float px = src[i];
+            float py = src[i + 1];
+            dst[i] = x + cos * px - sin * py;
+            dst[i + 1] = y + sin * px + cos * py;
+        }
+    }
+
+    /**
+     * @return alpha of background tint, it reaches full alpha in the first 1/8 of expansion.
+     */
+    public static int backgroundAlpha(int alpha, float progress) {
+        return (int) (alpha * (progress <= 0.125f ? progress * 8 : 1f));
+    }
+
+    /**
+     * @param interpolated interpolated progress of fading.
+     */
+    public static int fadeAlpha(int startAlpha, float interpolated) {
+        return (int) (startAlpha * (1f - interpolated));
+    }
+
+    /**
+     * @return true if x, y is inside the bound, edges included.
+     */
+    public static boolean isInBound(float x, float y, int left, int top, int right, int bottom) {
+        return x >= left && x <= right && y >= top && y <= bottom;
+    }
+}
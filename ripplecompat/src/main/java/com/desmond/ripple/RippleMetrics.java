@@ -0,0 +1,236 @@
+package com.desmond.ripple;
+
+/**
+ * Runtime cost of ripples, recorded per drawable and globally.
+ * <p>
+ * Disabled by default, a disabled recording point costs one static field read. Once enabled with
+ * {@link #setEnabled(boolean)}, it records:
+ * <ul>
+ * <li>duration of {@link RippleCompatDrawable#draw(android.graphics.Canvas)}, in microseconds. With hardware
+ * acceleration it's the cost of recording the display list, not of rasterizing it.</li>
+ * <li>frames ticked per ripple, from touch down to faded.</li>
+ * <li>interval between frames of running ripples, a frame later than 1.5 display intervals is late and the
+ * intervals it spans are dropped, see {@link #setFrameInterval(float)}. Globally each frame is counted once,
+ * however many ripples it ticks.</li>
+ * <li>latency from ACTION_DOWN reaching {@link RippleCompatDrawable#onTouch} to the first frame drawing the
+ * ripple, in microseconds.</li>
+ * <li>duration of palette extraction, in microseconds, globally only.</li>
+ * </ul>
+ * Take a {@link Snapshot} with {@link #snapshot()} to forward it to your telemetry, and {@link #reset()} to
+ * start a new period. Thread safe.
+ */
+public class RippleMetrics {
+    private static volatile boolean isEnabled = false;
+    /* expected interval between frames in milliseconds. */
+    private static volatile float sFrameInterval = RippleUtil.FRAME_INTERVAL;
+    private static final RippleMetrics sGlobal = new RippleMetrics();
+
+    private final Histogram mDrawTime = new Histogram();
+    private final Histogram mTicksPerRipple = new Histogram();
+    private final Histogram mFrameInterval = new Histogram();
+    private final Histogram mTouchLatency = new Histogram();
+    private final Histogram mPaletteTime = new Histogram();
+    private long mFrameCount = 0;
+    private long mLateFrameCount = 0;
+    private long mDroppedFrameCount = 0;
+
+    RippleMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Enable or disable recording, recorded values are kept either way.
+     *
+     * @param enabled true to record.
+     */
+    public static void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    /**
+     * Set expected interval between display frames late and dropped frames are counted against, default is
+     * {@link RippleUtil#FRAME_INTERVAL}. Set it from {@code Display.getRefreshRate()} on high refresh rate
+     * displays.
+     *
+     * @param intervalMillis frame interval in milliseconds.
+     */
+    public static void setFrameInterval(float intervalMillis) {
+        if (intervalMillis <= 0) return;
+        sFrameInterval = intervalMillis;
+    }
+
+    /**
+     * @return metrics of all drawables.
+     */
+    public static RippleMetrics getGlobal() {
+        return sGlobal;
+    }
+
+    synchronized void recordDraw(long nanos) {
+        mDrawTime.record(nanos / 1000);
+        if (this != sGlobal) sGlobal.recordDraw(nanos);
+    }
+
+    synchronized void recordTicks(int ticks) {
+        mTicksPerRipple.record(ticks);
+        if (this != sGlobal) sGlobal.recordTicks(ticks);
+    }
+
+    synchronized void recordFrameInterval(long intervalMillis) {
+        mFrameInterval.record(intervalMillis);
+        mFrameCount++;
+        float frameInterval = sFrameInterval;
+        if (intervalMillis > frameInterval * 1.5f) {
+            mLateFrameCount++;
+            mDroppedFrameCount += Math.round(intervalMillis / frameInterval) - 1;
+        }
+    }
+
+    synchronized void recordTouchLatency(long nanos) {
+        mTouchLatency.record(nanos / 1000);
+        if (this != sGlobal) sGlobal.recordTouchLatency(nanos);
+    }
+
+    static void recordPaletteTime(long nanos) {
+        synchronized (sGlobal) {
+            sGlobal.mPaletteTime.record(nanos / 1000);
+        }
+    }
+
+    /**
+     * @return copy of the values recorded since last reset.
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Drop recorded values. Resetting the global metrics doesn't reset metrics of drawables.
+     */
+    public synchronized void reset() {
+        mDrawTime.clear();
+        mTicksPerRipple.clear();
+        mFrameInterval.clear();
+        mTouchLatency.clear();
+        mPaletteTime.clear();
+        mFrameCount = 0;
+        mLateFrameCount = 0;
+        mDroppedFrameCount = 0;
+    }
+
+    /**
+     * Immutable copy of {@link RippleMetrics}.
+     */
+    public static final class Snapshot {
+        public final Histogram drawTimeMicros;
+        public final Histogram ticksPerRipple;
+        public final Histogram frameIntervalMillis;
+        public final Histogram touchLatencyMicros;
+        /* always empty for metrics of a drawable. */
+        public final Histogram paletteTimeMicros;
+        public final long frameCount;
+        public final long lateFrameCount;
+        public final long droppedFrameCount;
+
+        private Snapshot(RippleMetrics metrics) {
+            drawTimeMicros = new Histogram(metrics.mDrawTime);
+            ticksPerRipple = new Histogram(metrics.mTicksPerRipple);
+            frameIntervalMillis = new Histogram(metrics.mFrameInterval);
+            touchLatencyMicros = new Histogram(metrics.mTouchLatency);
+            paletteTimeMicros = new Histogram(metrics.mPaletteTime);
+            frameCount = metrics.mFrameCount;
+            lateFrameCount = metrics.mLateFrameCount;
+            droppedFrameCount = metrics.mDroppedFrameCount;
+        }
+    }
+
+    /**
+     * Histogram of non-negative values in power-of-two buckets, bucket i counts values in [2^(i-1), 2^i), bucket
+     * 0 counts 0. Recording doesn't allocate.
+     */
+    public static final class Histogram {
+        public static final int BUCKET_COUNT = 33;
+
+        private final long[] mCounts = new long[BUCKET_COUNT];
+        private long mCount = 0;
+        private long mSum = 0;
+        private long mMax = 0;
+
+        Histogram() {
+        }
+
+        private Histogram(Histogram histogram) {
+            System.arraycopy(histogram.mCounts, 0, mCounts, 0, BUCKET_COUNT);
+            mCount = histogram.mCount;
+            mSum = histogram.mSum;
+            mMax = histogram.mMax;
+        }
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            mCounts[Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value))]++;
+            mCount++;
+            mSum += value;
+            if (value > mMax) mMax = value;
+        }
+
+        private void clear() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mCounts[i] = 0;
+            }
+            mCount = 0;
+            mSum = 0;
+            mMax = 0;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getSum() {
+            return mSum;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public float getMean() {
+            return mCount == 0 ? 0f : (float) mSum / mCount;
+        }
+
+        /**
+         * @param bucket index of bucket, less than {@link #BUCKET_COUNT}.
+         * @return count of values in bucket.
+         */
+        public long getBucketCount(int bucket) {
+            return mCounts[bucket];
+        }
+
+        /**
+         * @param bucket index of bucket, less than {@link #BUCKET_COUNT}.
+         * @return exclusive upper bound of values in bucket, the last bucket is unbounded.
+         */
+        public static long getBucketUpperBound(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        /**
+         * @param percentile percentile from 0 to 100.
+         * @return upper bound of the bucket holding percentile, capped at max value. 0 if empty.
+         */
+        public long getPercentile(float percentile) {
+            if (mCount == 0) return 0;
+            long rank = (long) Math.ceil(mCount * Math.min(100f, Math.max(0f, percentile)) / 100f);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mCounts[i];
+                if (seen >= rank && seen > 0) return Math.min(mMax, getBucketUpperBound(i) - 1);
+            }
+            return mMax;
+        }
+    }
+}
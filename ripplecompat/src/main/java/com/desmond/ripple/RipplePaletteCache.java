@@ -0,0 +1,165 @@
+package com.desmond.ripple;
+
+import android.graphics.drawable.Drawable;
+import android.support.v4.util.LruCache;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Bounded in-memory LRU cache of palette results.
+ * <p>
+ * A result holds the swatch color of every {@link RippleUtil.PaletteMode}, indexed by
+ * {@link RippleUtil.PaletteMode#ordinal()}, so switching palette mode on a cached background is a single lookup.
+ * Results are keyed by the caller-supplied palette key ({@link RippleConfig#setPaletteKey(long)}) or resource id
+ * when known, otherwise by the drawable's {@link Drawable.ConstantState} (shared by drawables of the same image)
+ * or the drawable itself, referred to weakly. The extractor is part of the key, the built-in one and support
+ * Palette pick different swatches of the same background.
+ */
+public class RipplePaletteCache {
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    private static LruCache<Object, int[]> sCache = new LruCache<>(DEFAULT_MAX_SIZE);
+    /* reused for lookups, guarded by class lock. */
+    private static final Key sLookupKey = new Key();
+
+    /**
+     * Set max count of cached palette results, this would drop all cached results.
+     *
+     * @param maxSize max count of backgrounds.
+     */
+    public static synchronized void setMaxSize(int maxSize) {
+        sCache = new LruCache<>(maxSize);
+    }
+
+    public static synchronized void clear() {
+        sCache.evictAll();
+    }
+
+    public static synchronized int size() {
+        return sCache.size();
+    }
+
+    public static synchronized int hitCount() {
+        return sCache.hitCount();
+    }
+
+    public static synchronized int missCount() {
+        return sCache.missCount();
+    }
+
+    /**
+     * @return key of background that doesn't retain it, see {@link Key}.
+     */
+    static Object keyOf(Drawable background, int resId, long paletteKey, boolean isBuiltin) {
+        if (paletteKey != 0) {
+            return new Key(Key.PALETTE_KEY, paletteKey, null, isBuiltin);
+        }
+        if (resId != 0) {
+            return new Key(Key.RES_ID, resId, null, isBuiltin);
+        }
+        return new Key(Key.DRAWABLE, 0, drawableKey(background), isBuiltin);
+    }
+
+    /**
+     * @return {@link Drawable.ConstantState} of background (shared by drawables of the same image), or the
+     * drawable itself.
+     */
+    private static Object drawableKey(Drawable background) {
+        Drawable.ConstantState state = background.getConstantState();
+        return state != null ? state : background;
+    }
+
+    static synchronized int[] get(Object key) {
+        return sCache.get(key);
+    }
+
+    /**
+     * Same as {@code get(keyOf(background, resId, paletteKey, isBuiltin))}, but doesn't allocate the key.
+     */
+    static synchronized int[] get(Drawable background, int resId, long paletteKey, boolean isBuiltin) {
+        if (paletteKey != 0) {
+            sLookupKey.set(Key.PALETTE_KEY, paletteKey, null, isBuiltin);
+        } else if (resId != 0) {
+            sLookupKey.set(Key.RES_ID, resId, null, isBuiltin);
+        } else {
+            sLookupKey.set(Key.DRAWABLE, 0, drawableKey(background), isBuiltin);
+        }
+        int[] colors = sCache.get(sLookupKey);
+        /* don't keep the drawable reachable from the static lookup key. */
+        sLookupKey.set(Key.PALETTE_KEY, 0, null, false);
+        return colors;
+    }
+
+    static synchronized void put(Object key, int[] colors) {
+        sCache.put(key, colors);
+    }
+
+    /**
+     * Cache key of a background and extractor, by palette key, resource id or identity of a drawable or its
+     * constant state.
+     * A key of a drawable refers to it weakly, so cached results don't keep backgrounds and their bitmaps alive,
+     * and once it's collected the key only equals itself until the cache evicts it. The lookup key refers to
+     * the drawable strongly, and is equal to a key of the same drawable either way round.
+     */
+    static final class Key {
+        static final int PALETTE_KEY = 0;
+        static final int RES_ID = 1;
+        static final int DRAWABLE = 2;
+
+        private int type;
+        private long value;
+        /* set on the lookup key only. */
+        private Object target;
+        private WeakReference<Object> targetRef;
+        private boolean isBuiltin;
+        private int hash;
+
+        private Key() {
+        }
+
+        private Key(int type, long value, Object target, boolean isBuiltin) {
+            this.type = type;
+            this.value = value;
+            this.isBuiltin = isBuiltin;
+            if (target != null) targetRef = new WeakReference<>(target);
+            hash = hashOf(type, value, target, isBuiltin);
+        }
+
+        private Key set(int type, long value, Object target, boolean isBuiltin) {
+            this.type = type;
+            this.value = value;
+            this.target = target;
+            this.isBuiltin = isBuiltin;
+            hash = hashOf(type, value, target, isBuiltin);
+            return this;
+        }
+
+        private static int hashOf(int type, long value, Object target, boolean isBuiltin) {
+            int hash = type == DRAWABLE ? System.identityHashCode(target) : 31 * type + (int) (value ^ (value >>> 32));
+            return isBuiltin ? 31 * hash + 1 : hash;
+        }
+
+        private Object getTarget() {
+            if (target != null) return target;
+            return targetRef != null ? targetRef.get() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            if (type != key.type || value != key.value || isBuiltin != key.isBuiltin || hash != key.hash) {
+                return false;
+            }
+            if (type != DRAWABLE) return true;
+            Object target = getTarget();
+            return target != null && target == key.getTarget();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
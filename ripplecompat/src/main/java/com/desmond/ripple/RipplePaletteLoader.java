@@ -0,0 +1,188 @@
+package com.desmond.ripple;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v7.graphics.Palette;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs palette extraction off the main thread.
+ * <p>
+ * Concurrent requests for the same background and extractor are coalesced into one job whose result fans out to every
+ * waiting {@link RippleCompatDrawable}, the palette mode is applied on delivery. A drawable waits on at most
+ * one job; a job nobody waits on anymore is cancelled. Results are delivered on the main thread in one batch
+ * per frame through {@link RippleFrameScheduler}.
+ * <p>
+ * Except for the worker side of {@link Job}, everything runs on the main thread.
+ */
+class RipplePaletteLoader {
+    private static Executor sExecutor = null;
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /* running jobs by palette cache key. */
+    private static final HashMap<Object, Job> sJobs = new HashMap<>();
+    /* waiting job of each drawable. */
+    private static final HashMap<RippleCompatDrawable, Job> sWaiting = new HashMap<>();
+
+    /* finished jobs waiting for delivery, guarded by itself. */
+    private static final ArrayList<Job> sFinished = new ArrayList<>();
+    private static final ArrayList<Job> sDelivering = new ArrayList<>();
+    private static boolean isDeliveryPosted = false;
+
+    private static final Runnable sDeliveryPoster = new Runnable() {
+        @Override
+        public void run() {
+            RippleFrameScheduler.getInstance().register(sDeliveryFrame);
+        }
+    };
+
+    private static final RippleFrameScheduler.FrameCallback sDeliveryFrame = new RippleFrameScheduler.FrameCallback() {
+        @Override
+        public boolean doFrame(long frameTimeMillis) {
+            deliverFinished();
+            return false;
+        }
+    };
+
+    static void setExecutor(Executor executor) {
+        sExecutor = executor;
+    }
+
+    private static Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "RipplePalette");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Request palette of background for drawable, superseding its previous request.
+     *
+     * @param drawable   drawable waiting for the result.
+     * @param background background to extract, must have intrinsic size.
+     * @param key        palette cache key of background, it includes the extractor of drawable.
+     * @param diskKey    disk cache key of background, 0 if it shouldn't be persisted.
+     */
+    static void load(RippleCompatDrawable drawable, Drawable background, Object key, long diskKey) {
+        Job waiting = sWaiting.get(drawable);
+        if (waiting != null) {
+            if (waiting.key.equals(key)) return;
+            cancel(drawable);
+        }
+
+        Job job = sJobs.get(key);
+        if (job == null) {
+            Bitmap sample = RippleUtil.sampleBitmap(background, RippleUtil.getPaletteSampleSize());
+            job = new Job(key, diskKey, background, sample, drawable.isBuiltinPalette());
+            sJobs.put(key, job);
+            getExecutor().execute(job);
+        }
+        job.waiters.add(drawable);
+        sWaiting.put(drawable, job);
+    }
+
+    /**
+     * Stop waiting for the pending palette of drawable.
+     *
+     * @return true if drawable was waiting for a palette.
+     */
+    static boolean cancel(RippleCompatDrawable drawable) {
+        Job job = sWaiting.remove(drawable);
+        if (job == null) return false;
+        job.waiters.remove(drawable);
+        if (job.waiters.isEmpty()) {
+            job.isCancelled = true;
+            if (sJobs.get(job.key) == job) sJobs.remove(job.key);
+        }
+        return true;
+    }
+
+    private static void onJobFinished(Job job) {
+        synchronized (sFinished) {
+            sFinished.add(job);
+            if (isDeliveryPosted) return;
+            isDeliveryPosted = true;
+        }
+        sMainHandler.post(sDeliveryPoster);
+    }
+
+    private static void deliverFinished() {
+        synchronized (sFinished) {
+            sDelivering.addAll(sFinished);
+            sFinished.clear();
+            isDeliveryPosted = false;
+        }
+
+        for (int i = 0; i < sDelivering.size(); i++) {
+            Job job = sDelivering.get(i);
+            RippleUtil.releaseSampleBitmap(job.background, job.sample);
+            if (sJobs.get(job.key) == job) sJobs.remove(job.key);
+            if (job.colors == null) continue;
+
+            RipplePaletteCache.put(job.key, job.colors);
+            RippleDiskPaletteCache diskCache = RippleDiskPaletteCache.getInstance();
+            if (diskCache != null && job.diskKey != 0) diskCache.put(job.diskKey, job.colors);
+            for (int j = 0; j < job.waiters.size(); j++) {
+                RippleCompatDrawable drawable = job.waiters.get(j);
+                sWaiting.remove(drawable);
+                drawable.applyPaletteColors(job.colors);
+            }
+            job.waiters.clear();
+        }
+        sDelivering.clear();
+    }
+
+    private static final class Job implements Runnable {
+        private final Object key;
+        private final long diskKey;
+        private final Drawable background;
+        private final Bitmap sample;
+        private final boolean isBuiltin;
+        private final ArrayList<RippleCompatDrawable> waiters = new ArrayList<>();
+        private volatile boolean isCancelled = false;
+        private volatile int[] colors;
+
+        private Job(Object key, long diskKey, Drawable background, Bitmap sample, boolean isBuiltin) {
+            this.key = key;
+            this.diskKey = diskKey;
+            this.background = background;
+            this.sample = sample;
+            this.isBuiltin = isBuiltin;
+        }
+
+        @Override
+        public void run() {
+            if (!isCancelled) {
+                long start = RippleMetrics.isEnabled() ? System.nanoTime() : 0;
+                if (isBuiltin) {
+                    colors = RippleUtil.extractColors(sample);
+                } else {
+                    colors = RippleUtil.getPaletteColors(Palette.from(sample).generate());
+                }
+                if (start != 0) RippleMetrics.recordPaletteTime(System.nanoTime() - start);
+            }
+            onJobFinished(this);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.desmond.ripple;
+
+import android.util.SparseArray;
+
+/**
+ * Palettes of drawable resources precomputed at build time.
+ * <p>
+ * It is filled by the {@code RipplePalettes} class the {@code RipplePalettePlugin} Gradle plugin generates into
+ * the app, call {@code RipplePalettes.install()} once at startup. {@link RippleUtil#palette} checks it before
+ * any cache or runtime extraction when the background's resource id is known, see
+ * {@link RippleConfig#setBackgroundResource(int)}. Colors are computed by {@link RippleColorExtractor}, so only
+ * configs using the built-in extractor read it, see {@link RippleConfig#setIsBuiltinPalette(boolean)}; support
+ * Palette picks different swatches.
+ */
+public class RipplePaletteTable {
+    private static final SparseArray<int[]> sTable = new SparseArray<>();
+
+    /**
+     * Add precomputed swatch colors of a drawable resource.
+     */
+    public static synchronized void put(int resId, int vibrant, int vibrantLight, int vibrantDark,
+                                        int muted, int mutedLight, int mutedDark) {
+        int[] colors = new int[RippleColorExtractor.RESULT_SIZE];
+        colors[RippleColorExtractor.VIBRANT] = vibrant;
+        colors[RippleColorExtractor.VIBRANT_LIGHT] = vibrantLight;
+        colors[RippleColorExtractor.VIBRANT_DARK] = vibrantDark;
+        colors[RippleColorExtractor.MUTED] = muted;
+        colors[RippleColorExtractor.MUTED_LIGHT] = mutedLight;
+        colors[RippleColorExtractor.MUTED_DARK] = mutedDark;
+        sTable.put(resId, colors);
+    }
+
+    public static synchronized int size() {
+        return sTable.size();
+    }
+
+    public static synchronized void clear() {
+        sTable.clear();
+    }
+
+    /**
+     * @return colors indexed by {@link RippleUtil.PaletteMode#ordinal()}, or null if not precomputed.
+     */
+    static synchronized int[] get(int resId) {
+        return sTable.get(resId);
+    }
+}
@@ -1,8 +1,64 @@
 package com.desmond.ripple;
 
+import android.annotation.TargetApi;
+import android.content.res.Resources;
+import android.graphics.Matrix;
 import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Build;
+
+import java.util.EnumMap;
 
 public class RipplePathFactory {
+    /* Shared shape paths, valid for sCacheDensity only. */
+    private static final EnumMap<RippleCompatDrawable.Type, Path> sPathCache =
+            new EnumMap<>(RippleCompatDrawable.Type.class);
+    private static float sCacheDensity = 0f;
+
+    /**
+     * Get the shared path of a ripple shape. All drawables of the same type and display density share
+     * one instance, the returned path is immutable and throws {@link UnsupportedOperationException} on
+     * mutation. Copy it with {@link Path#Path(Path)} if you need to modify it.
+     *
+     * @param type ripple shape type.
+     * @return shared immutable path.
+     */
+    public static synchronized Path obtainPath(RippleCompatDrawable.Type type) {
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        if (density != sCacheDensity) {
+            sPathCache.clear();
+            sCacheDensity = density;
+        }
+
+        Path path = sPathCache.get(type);
+        if (path == null) {
+            path = new ImmutablePath(producePath(type));
+            sPathCache.put(type, path);
+        }
+        return path;
+    }
+
+    /**
+     * Drop all shared paths, they would be rebuilt on next {@link #obtainPath(RippleCompatDrawable.Type)}.
+     */
+    public static synchronized void clearCache() {
+        sPathCache.clear();
+        sCacheDensity = 0f;
+    }
+
+    public static Path producePath(RippleCompatDrawable.Type type) {
+        switch (type) {
+            case HEART:
+                return produceHeartPath();
+
+            case TRIANGLE:
+                return produceTrianglePath();
+
+            case CIRCLE:
+            default:
+                return produceCirclePath();
+        }
+    }
 
     public static Path produceCirclePath(){
         Path path = new Path();
@@ -11,25 +67,317 @@ public class RipplePathFactory {
     }
 
     public static Path produceHeartPath(){
-        int d = RippleUtil.MIN_RIPPLE_RADIUS * 2;
-        int offset = (int)(-d /2f);
         Path path = new Path();
-        path.moveTo(0, offset);
-        path.cubicTo(-d, offset - d / 2, -d, offset + d / 2, 0, offset + d);
-        path.cubicTo(d, offset + d / 2, d, offset - d / 2, 0, offset);
-        path.close();
+        addHeart(path, heartPoints());
         return path;
     }
 
     public static Path produceTrianglePath(){
+        Path path = new Path();
+        addTriangle(path, trianglePoints());
+        return path;
+    }
+
+    /**
+     * @return x, y pairs of the heart at scale 1: start point, then control points and end point of two cubics.
+     */
+    static float[] heartPoints() {
+        int d = RippleUtil.MIN_RIPPLE_RADIUS * 2;
+        int offset = (int)(-d /2f);
+        return new float[]{0, offset,
+                -d, offset - d / 2, -d, offset + d / 2, 0, offset + d,
+                d, offset + d / 2, d, offset - d / 2, 0, offset};
+    }
+
+    /**
+     * @return x, y pairs of the triangle vertices at scale 1.
+     */
+    static float[] trianglePoints() {
         int d = RippleUtil.MIN_RIPPLE_RADIUS * 2;
         int offset = (int)(-d * 2 / 3f);
         int edge = (int) ( d * 2 / Math.sqrt(3));
-        Path path = new Path();
-        path.moveTo(0, offset);
-        path.lineTo(-edge / 2f, -offset / 2f);
-        path.lineTo(edge / 2f, -offset / 2f);
+        return new float[]{0, offset, -edge / 2f, -offset / 2f, edge / 2f, -offset / 2f};
+    }
+
+    /**
+     * @param points heart points, see {@link #heartPoints()}, optionally transformed.
+     */
+    static void addHeart(Path path, float[] points) {
+        path.moveTo(points[0], points[1]);
+        path.cubicTo(points[2], points[3], points[4], points[5], points[6], points[7]);
+        path.cubicTo(points[8], points[9], points[10], points[11], points[12], points[13]);
         path.close();
-        return path;
+    }
+
+    /**
+     * @param points triangle vertices, see {@link #trianglePoints()}, optionally transformed.
+     */
+    static void addTriangle(Path path, float[] points) {
+        path.moveTo(points[0], points[1]);
+        path.lineTo(points[2], points[3]);
+        path.lineTo(points[4], points[5]);
+        path.close();
+    }
+
+    /**
+     * Path copy which rejects every mutation once constructed, so a shared instance can't be corrupted.
+     */
+    private static final class ImmutablePath extends Path {
+        private final boolean isSealed;
+
+        private ImmutablePath(Path src) {
+            super(src);
+            isSealed = true;
+        }
+
+        private void checkMutable() {
+            if (isSealed) {
+                throw new UnsupportedOperationException("Shared ripple path is immutable, copy it first.");
+            }
+        }
+
+        private void checkMutable(Path dst) {
+            if (dst == null || dst == this) checkMutable();
+        }
+
+        @Override
+        public void reset() {
+            checkMutable();
+            super.reset();
+        }
+
+        @Override
+        public void rewind() {
+            checkMutable();
+            super.rewind();
+        }
+
+        @Override
+        public void set(Path src) {
+            checkMutable();
+            super.set(src);
+        }
+
+        @Override
+        public void setFillType(FillType ft) {
+            checkMutable();
+            super.setFillType(ft);
+        }
+
+        @Override
+        public void toggleInverseFillType() {
+            checkMutable();
+            super.toggleInverseFillType();
+        }
+
+        @Override
+        public void incReserve(int extraPtCount) {
+            checkMutable();
+            super.incReserve(extraPtCount);
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            checkMutable();
+            super.moveTo(x, y);
+        }
+
+        @Override
+        public void rMoveTo(float dx, float dy) {
+            checkMutable();
+            super.rMoveTo(dx, dy);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            checkMutable();
+            super.lineTo(x, y);
+        }
+
+        @Override
+        public void rLineTo(float dx, float dy) {
+            checkMutable();
+            super.rLineTo(dx, dy);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            checkMutable();
+            super.quadTo(x1, y1, x2, y2);
+        }
+
+        @Override
+        public void rQuadTo(float dx1, float dy1, float dx2, float dy2) {
+            checkMutable();
+            super.rQuadTo(dx1, dy1, dx2, dy2);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            checkMutable();
+            super.cubicTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void rCubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            checkMutable();
+            super.rCubicTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void arcTo(RectF oval, float startAngle, float sweepAngle, boolean forceMoveTo) {
+            checkMutable();
+            super.arcTo(oval, startAngle, sweepAngle, forceMoveTo);
+        }
+
+        @Override
+        public void arcTo(RectF oval, float startAngle, float sweepAngle) {
+            checkMutable();
+            super.arcTo(oval, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void arcTo(float left, float top, float right, float bottom, float startAngle,
+                          float sweepAngle, boolean forceMoveTo) {
+            checkMutable();
+            super.arcTo(left, top, right, bottom, startAngle, sweepAngle, forceMoveTo);
+        }
+
+        @Override
+        public void close() {
+            checkMutable();
+            super.close();
+        }
+
+        @Override
+        public void addRect(RectF rect, Direction dir) {
+            checkMutable();
+            super.addRect(rect, dir);
+        }
+
+        @Override
+        public void addRect(float left, float top, float right, float bottom, Direction dir) {
+            checkMutable();
+            super.addRect(left, top, right, bottom, dir);
+        }
+
+        @Override
+        public void addOval(RectF oval, Direction dir) {
+            checkMutable();
+            super.addOval(oval, dir);
+        }
+
+        @Override
+        public void addOval(float left, float top, float right, float bottom, Direction dir) {
+            checkMutable();
+            super.addOval(left, top, right, bottom, dir);
+        }
+
+        @Override
+        public void addCircle(float x, float y, float radius, Direction dir) {
+            checkMutable();
+            super.addCircle(x, y, radius, dir);
+        }
+
+        @Override
+        public void addArc(RectF oval, float startAngle, float sweepAngle) {
+            checkMutable();
+            super.addArc(oval, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void addArc(float left, float top, float right, float bottom, float startAngle, float sweepAngle) {
+            checkMutable();
+            super.addArc(left, top, right, bottom, startAngle, sweepAngle);
+        }
+
+        @Override
+        public void addRoundRect(RectF rect, float rx, float ry, Direction dir) {
+            checkMutable();
+            super.addRoundRect(rect, rx, ry, dir);
+        }
+
+        @Override
+        public void addRoundRect(RectF rect, float[] radii, Direction dir) {
+            checkMutable();
+            super.addRoundRect(rect, radii, dir);
+        }
+
+        @Override
+        public void addRoundRect(float left, float top, float right, float bottom, float rx, float ry,
+                                 Direction dir) {
+            checkMutable();
+            super.addRoundRect(left, top, right, bottom, rx, ry, dir);
+        }
+
+        @Override
+        public void addRoundRect(float left, float top, float right, float bottom, float[] radii,
+                                 Direction dir) {
+            checkMutable();
+            super.addRoundRect(left, top, right, bottom, radii, dir);
+        }
+
+        @Override
+        public void addPath(Path src, float dx, float dy) {
+            checkMutable();
+            super.addPath(src, dx, dy);
+        }
+
+        @Override
+        public void addPath(Path src) {
+            checkMutable();
+            super.addPath(src);
+        }
+
+        @Override
+        public void addPath(Path src, Matrix matrix) {
+            checkMutable();
+            super.addPath(src, matrix);
+        }
+
+        @Override
+        public void offset(float dx, float dy, Path dst) {
+            checkMutable(dst);
+            super.offset(dx, dy, dst);
+        }
+
+        @Override
+        public void offset(float dx, float dy) {
+            checkMutable();
+            super.offset(dx, dy);
+        }
+
+        @Override
+        public void setLastPoint(float dx, float dy) {
+            checkMutable();
+            super.setLastPoint(dx, dy);
+        }
+
+        @Override
+        public void transform(Matrix matrix, Path dst) {
+            checkMutable(dst);
+            super.transform(matrix, dst);
+        }
+
+        @Override
+        public void transform(Matrix matrix) {
+            checkMutable();
+            super.transform(matrix);
+        }
+
+        @Override
+        @TargetApi(Build.VERSION_CODES.KITKAT)
+        public boolean op(Path path, Op op) {
+            checkMutable();
+            return super.op(path, op);
+        }
+
+        @Override
+        @TargetApi(Build.VERSION_CODES.KITKAT)
+        public boolean op(Path path1, Path path2, Op op) {
+            /* the result is written to this path. */
+            checkMutable();
+            return super.op(path1, path2, op);
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Renderer of a custom shape given by path, the path is centered at origin and sized for scale 1. Built-in
+ * shapes have renderers of their own, see {@link RippleConfig#getShapeRenderer()}.
+ */
+public class RipplePathRenderer implements RippleShapeRenderer {
+    private final Path mPath;
+
+    /**
+     * @param path shape path, it shouldn't be modified afterwards.
+     */
+    public RipplePathRenderer(Path path) {
+        mPath = path;
+    }
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, float x, float y, float scale, float degree) {
+        canvas.save();
+        canvas.translate(x, y);
+        canvas.scale(scale, scale);
+        if (degree != 0f) canvas.rotate(degree);
+        canvas.drawPath(mPath, paint);
+        canvas.restore();
+    }
+
+    @Override
+    public void getBound(RectF outBound) {
+        mPath.computeBounds(outBound, true);
+    }
+}
@@ -0,0 +1,163 @@
+package com.desmond.ripple;
+
+import android.graphics.Rect;
+
+/**
+ * Preallocated state of the concurrent ripples of one {@link RippleCompatDrawable}, laid out as a structure of
+ * primitive arrays so starting a ripple never allocates. When every slot is active the oldest ripple is
+ * evicted.
+ */
+final class RipplePool {
+    static final int NO_POINTER = -1;
+
+    final int size;
+
+    final boolean[] active;
+    final boolean[] pressed;
+    final boolean[] waving;
+    final boolean[] fading;
+    /* true if the touch point moved since last frame. */
+    final boolean[] moved;
+    /* true if the finish listeners should be triggered once faded. */
+    final boolean[] notify;
+
+    final int[] pointerId;
+    final int[] x;
+    final int[] y;
+    final int[] alpha;
+    final int[] fadeStartAlpha;
+    final int[] backgroundAlpha;
+    final float[] scale;
+    final float[] degree;
+    final long[] startTime;
+    final long[] fadeStartTime;
+    final long[] elapsedOffset;
+    final long[] sequence;
+    /* frames ticked since started. */
+    final int[] ticks;
+    /* bound of the ripple at last invalidation, empty if not drawn yet. */
+    final int[] boundLeft;
+    final int[] boundTop;
+    final int[] boundRight;
+    final int[] boundBottom;
+
+    private long mSequence = 0;
+    private int mActiveCount = 0;
+
+    RipplePool(int size) {
+        this.size = Math.max(1, size);
+        active = new boolean[this.size];
+        pressed = new boolean[this.size];
+        waving = new boolean[this.size];
+        fading = new boolean[this.size];
+        moved = new boolean[this.size];
+        notify = new boolean[this.size];
+        pointerId = new int[this.size];
+        x = new int[this.size];
+        y = new int[this.size];
+        alpha = new int[this.size];
+        fadeStartAlpha = new int[this.size];
+        backgroundAlpha = new int[this.size];
+        scale = new float[this.size];
+        degree = new float[this.size];
+        startTime = new long[this.size];
+        fadeStartTime = new long[this.size];
+        elapsedOffset = new long[this.size];
+        sequence = new long[this.size];
+        ticks = new int[this.size];
+        boundLeft = new int[this.size];
+        boundTop = new int[this.size];
+        boundRight = new int[this.size];
+        boundBottom = new int[this.size];
+    }
+
+    /**
+     * Start a ripple, evicting the oldest one if the pool is full.
+     *
+     * @param evictedBound the last bound of an evicted ripple is added to it, its pixels are still on screen.
+     * @return index of the ripple.
+     */
+    int obtain(int pointer, int touchX, int touchY, long now, int startAlpha, Rect evictedBound) {
+        int index = -1;
+        for (int i = 0; i < size; i++) {
+            if (!active[i]) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            index = 0;
+            for (int i = 1; i < size; i++) {
+                if (sequence[i] < sequence[index]) index = i;
+            }
+            evictedBound.union(boundLeft[index], boundTop[index], boundRight[index], boundBottom[index]);
+        } else {
+            mActiveCount++;
+        }
+
+        active[index] = true;
+        pressed[index] = true;
+        waving[index] = true;
+        fading[index] = false;
+        moved[index] = false;
+        notify[index] = false;
+        pointerId[index] = pointer;
+        x[index] = touchX;
+        y[index] = touchY;
+        alpha[index] = startAlpha;
+        backgroundAlpha[index] = 0;
+        scale[index] = 0f;
+        degree[index] = 0f;
+        startTime[index] = now;
+        elapsedOffset[index] = 0;
+        sequence[index] = ++mSequence;
+        ticks[index] = 0;
+        setBound(index, 0, 0, 0, 0);
+        return index;
+    }
+
+    /**
+     * @return index of the pressed ripple following pointer, or -1.
+     */
+    int findPressed(int pointer) {
+        for (int i = 0; i < size; i++) {
+            if (active[i] && pressed[i] && pointerId[i] == pointer) return i;
+        }
+        return -1;
+    }
+
+    void moveTo(int index, int touchX, int touchY) {
+        if (x[index] == touchX && y[index] == touchY) return;
+        x[index] = touchX;
+        y[index] = touchY;
+        moved[index] = true;
+    }
+
+    void setBound(int index, int left, int top, int right, int bottom) {
+        boundLeft[index] = left;
+        boundTop[index] = top;
+        boundRight[index] = right;
+        boundBottom[index] = bottom;
+    }
+
+    void recycle(int index) {
+        if (!active[index]) return;
+        active[index] = false;
+        pressed[index] = false;
+        waving[index] = false;
+        fading[index] = false;
+        notify[index] = false;
+        pointerId[index] = NO_POINTER;
+        mActiveCount--;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            recycle(i);
+        }
+    }
+
+    int activeCount() {
+        return mActiveCount;
+    }
+}
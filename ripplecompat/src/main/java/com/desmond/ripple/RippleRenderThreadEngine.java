@@ -0,0 +1,229 @@
+package com.desmond.ripple;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewAnimationUtils;
+import android.view.ViewGroup;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * Ripple engine of {@link RippleCompatDrawable} animating on the RenderThread, so ripples keep running while
+ * the UI thread is stalled.
+ * <p>
+ * The ripple and the background tint are two plain views in the overlay of host's parent, laid over the
+ * clip bound of the drawable with the translation, scale, rotation and pivot host has at touch down. Expansion
+ * is a circular reveal and fading is a view property animation without listeners, both are run by HWUI on the
+ * RenderThread. The end of fading is detected by a reveal on the tint view that doesn't change its clip.
+ * Colors, durations and interpolators are taken from the drawable, so palette and config behave as on the
+ * canvas path.
+ * <p>
+ * Scope is reduced compared to the canvas path: only {@link RippleCompatDrawable.Type#CIRCLE} without spin is
+ * supported, there is one ripple at a time (a new touch replaces it, other pointers are ignored), it doesn't
+ * follow the finger, and it doesn't follow host moved or transformed after touch down.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class RippleRenderThreadEngine {
+    private static final TimeInterpolator FADE_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    private static final TimeInterpolator TINT_INTERPOLATOR = new LinearInterpolator();
+    /* pressed ripple expands at the speed of the canvas path. */
+    private static final int PRESSED_SLOWDOWN = RippleMath.PRESSED_SLOWDOWN;
+
+    private final RippleCompatDrawable mDrawable;
+    private ViewGroup mParent;
+    private View mRippleView;
+    private View mTintView;
+    private Animator mRevealAnimator;
+    /* no-op reveal on the tint view, lasting as long as fading. */
+    private Animator mFadeEndAnimator;
+    private int mCenterX;
+    private int mCenterY;
+    private long mStartTime;
+    private boolean isPressed = false;
+    private boolean isNotify = false;
+    /* reused by every reveal, the previous reveal is cancelled before it's reset. */
+    private final RemainingInterpolator mRevealInterpolator = new RemainingInterpolator();
+
+    private final Animator.AnimatorListener mFadeListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            /* a cancelled fade ends too, after the ripple is replaced or dropped. */
+            if (animation != mFadeEndAnimator) return;
+            boolean notify = isNotify;
+            cancel();
+            if (notify) mDrawable.triggerListener();
+        }
+    };
+
+    static boolean isSupported(RippleShapeRenderer shapeRenderer, boolean isSpin) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && shapeRenderer == RippleCircleRenderer.INSTANCE && !isSpin;
+    }
+
+    RippleRenderThreadEngine(RippleCompatDrawable drawable) {
+        mDrawable = drawable;
+    }
+
+    /**
+     * Start a ripple on host.
+     *
+     * @return false if host can't animate on the RenderThread, the canvas path should be used instead.
+     */
+    boolean start(View host, float x, float y) {
+        Rect clipBound = mDrawable.getDrawClipBound();
+        if (!host.isHardwareAccelerated() || !host.isAttachedToWindow()
+                || !(host.getParent() instanceof ViewGroup) || clipBound == null || clipBound.isEmpty()) {
+            return false;
+        }
+        cancel();
+
+        mParent = (ViewGroup) host.getParent();
+        int left = host.getLeft() + clipBound.left;
+        int top = host.getTop() + clipBound.top;
+        int right = host.getLeft() + clipBound.right;
+        int bottom = host.getTop() + clipBound.bottom;
+        if (mRippleView == null) {
+            mRippleView = new View(host.getContext());
+            mTintView = new View(host.getContext());
+        }
+        mTintView.setBackgroundColor(mDrawable.getBackgroundColor());
+        mTintView.setAlpha(0f);
+        mTintView.layout(left, top, right, bottom);
+        copyTransform(host, mTintView, clipBound);
+        mRippleView.setBackgroundColor(mDrawable.getRippleColor());
+        mRippleView.setAlpha(1f);
+        mRippleView.layout(left, top, right, bottom);
+        copyTransform(host, mRippleView, clipBound);
+        mParent.getOverlay().add(mTintView);
+        mParent.getOverlay().add(mRippleView);
+
+        mCenterX = (int) x - clipBound.left;
+        mCenterY = (int) y - clipBound.top;
+        mStartTime = SystemClock.uptimeMillis();
+        isPressed = true;
+        startReveal(0f, (long) mDrawable.getRippleDuration() * PRESSED_SLOWDOWN);
+        /* tint reaches full alpha in the first 1/8 of expansion. */
+        mTintView.animate().alpha(1f)
+                .setDuration((long) mDrawable.getRippleDuration() * PRESSED_SLOWDOWN / 8)
+                .setInterpolator(TINT_INTERPOLATOR)
+                .setListener(null)
+                .start();
+        return true;
+    }
+
+    /**
+     * Release the pressed ripple, it expands at full speed from current progress and fades.
+     *
+     * @param notify true if finish listeners of the drawable should be triggered once faded.
+     */
+    void release(boolean notify) {
+        if (!isPressed) return;
+        isPressed = false;
+
+        int duration = mDrawable.getRippleDuration();
+        float progress = Math.min(1f, (SystemClock.uptimeMillis() - mStartTime) / (float) PRESSED_SLOWDOWN / duration);
+        if (progress < 1f) {
+            mRevealAnimator.cancel();
+            startReveal(progress, (long) ((1f - progress) * duration));
+        }
+
+        isNotify = notify;
+        /* a listener on a view property animation would move it back to the UI thread. */
+        mTintView.animate().alpha(0f)
+                .setDuration(mDrawable.getFadeDuration())
+                .setInterpolator(FADE_INTERPOLATOR)
+                .setListener(null)
+                .start();
+        mRippleView.animate().alpha(0f)
+                .setDuration(mDrawable.getFadeDuration())
+                .setInterpolator(FADE_INTERPOLATOR)
+                .setListener(null)
+                .start();
+        float radius = (float) Math.hypot(mTintView.getWidth(), mTintView.getHeight());
+        mFadeEndAnimator = ViewAnimationUtils.createCircularReveal(mTintView, 0, 0, radius, radius);
+        mFadeEndAnimator.setDuration(mDrawable.getFadeDuration());
+        mFadeEndAnimator.addListener(mFadeListener);
+        mFadeEndAnimator.start();
+    }
+
+    boolean isPressed() {
+        return isPressed;
+    }
+
+    /**
+     * Stop the ripple immediately without notifying listeners.
+     */
+    void cancel() {
+        isPressed = false;
+        if (mRevealAnimator != null) {
+            mRevealAnimator.cancel();
+            mRevealAnimator = null;
+        }
+        if (mFadeEndAnimator != null) {
+            Animator fadeEndAnimator = mFadeEndAnimator;
+            mFadeEndAnimator = null;
+            fadeEndAnimator.cancel();
+        }
+        if (mParent != null) {
+            mTintView.animate().cancel();
+            mRippleView.animate().cancel();
+            mParent.getOverlay().remove(mTintView);
+            mParent.getOverlay().remove(mRippleView);
+            mParent = null;
+        }
+    }
+
+    /**
+     * Lay view over clipBound of host as host is drawn, transformed around the same pivot.
+     */
+    private static void copyTransform(View host, View view, Rect clipBound) {
+        view.setTranslationX(host.getTranslationX());
+        view.setTranslationY(host.getTranslationY());
+        view.setScaleX(host.getScaleX());
+        view.setScaleY(host.getScaleY());
+        view.setRotation(host.getRotation());
+        view.setRotationX(host.getRotationX());
+        view.setRotationY(host.getRotationY());
+        view.setPivotX(host.getPivotX() - clipBound.left);
+        view.setPivotY(host.getPivotY() - clipBound.top);
+    }
+
+    private void startReveal(float fromProgress, long duration) {
+        mRevealAnimator = ViewAnimationUtils.createCircularReveal(mRippleView, mCenterX, mCenterY,
+                mDrawable.getRippleRadius(fromProgress), mDrawable.getRippleRadius(1f));
+        mRevealAnimator.setDuration(duration);
+        mRevealInterpolator.set(mDrawable.getInterpolator(), fromProgress);
+        mRevealAnimator.setInterpolator(mRevealInterpolator);
+        mRevealAnimator.start();
+    }
+
+    /**
+     * Remaining part of interpolator after startProgress, rescaled to [0, 1]. The reveal radius is linear in
+     * the interpolated value, so a reveal restarted from startProgress follows the same curve.
+     */
+    private static class RemainingInterpolator implements TimeInterpolator {
+        private TimeInterpolator mInterpolator;
+        private float mStartProgress;
+        private float mStartValue;
+
+        private void set(TimeInterpolator interpolator, float startProgress) {
+            mInterpolator = interpolator;
+            mStartProgress = startProgress;
+            mStartValue = interpolator.getInterpolation(startProgress);
+        }
+
+        @Override
+        public float getInterpolation(float input) {
+            float range = mInterpolator.getInterpolation(1f) - mStartValue;
+            if (range == 0f) return 1f;
+            float value = mInterpolator.getInterpolation(mStartProgress + input * (1f - mStartProgress));
+            return (value - mStartValue) / range;
+        }
+    }
+}
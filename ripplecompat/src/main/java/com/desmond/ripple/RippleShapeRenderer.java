@@ -0,0 +1,33 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Draws the shape of a ripple. Built-in shapes are picked by {@link RippleCompatDrawable.Type}, custom shapes
+ * are set by {@link RippleConfig#setShapeRenderer(RippleShapeRenderer)}.
+ * <p>
+ * Renderers are shared by drawables and called on the main thread, they shouldn't keep per-ripple state.
+ */
+public interface RippleShapeRenderer {
+    /**
+     * Draw the ripple.
+     *
+     * @param canvas canvas of the drawable.
+     * @param paint  paint with ripple color and alpha.
+     * @param x      center x of the ripple.
+     * @param y      center y of the ripple.
+     * @param scale  scale of the ripple, 1 at {@link RippleUtil#MIN_RIPPLE_RADIUS}.
+     * @param degree spin degree of the ripple, 0 if not spinning.
+     */
+    void draw(Canvas canvas, Paint paint, float x, float y, float scale, float degree);
+
+    /**
+     * Get bound of the shape at scale 1 centered at origin, it's transformed to compute the dirty rect of
+     * each frame.
+     *
+     * @param outBound bound to set.
+     */
+    void getBound(RectF outBound);
+}
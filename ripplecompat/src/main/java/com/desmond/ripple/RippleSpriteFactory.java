@@ -0,0 +1,175 @@
+package com.desmond.ripple;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Pre-rasterized ALPHA_8 masks of ripple shapes, see {@link RippleConfig#setIsSpriteMask(boolean)}.
+ * <p>
+ * A shape is rasterized once per size bucket, bucket n holds the shape at scale 2^n, and frames draw the
+ * smallest bucket not smaller than the ripple scaled down with bitmap filtering, tinted by the paint color.
+ * Masks are shared by all drawables, like the paths of {@link RipplePathFactory}.
+ */
+public class RippleSpriteFactory {
+    /* largest edge of a mask, bigger ripples are drawn as path. */
+    public static final int MAX_SPRITE_SIZE = 1024;
+    private static final int MAX_BUCKET = 8;
+    /* transparent border, so the filtered edge fades out instead of being cut. */
+    private static final int BORDER = 1;
+    /* cached for buckets that exceed MAX_SPRITE_SIZE. */
+    private static final Sprite OVERSIZE = new Sprite(null, 0, 0, 0f);
+
+    private static final Sprite[][] sSprites = new Sprite[RippleCompatDrawable.Type.values().length][MAX_BUCKET + 1];
+    private static float sCacheDensity = 0f;
+
+    /**
+     * Get the shared mask of a ripple shape for scale.
+     *
+     * @param type  ripple shape type.
+     * @param scale scale of the ripple path.
+     * @return shared mask, or null if it would exceed {@link #MAX_SPRITE_SIZE}.
+     */
+    static synchronized Sprite obtainSprite(RippleCompatDrawable.Type type, float scale) {
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        if (density != sCacheDensity) {
+            clearCache();
+            sCacheDensity = density;
+        }
+
+        int bucket = 0;
+        float bucketScale = 1f;
+        while (bucketScale < scale) {
+            if (bucket == MAX_BUCKET) return null;
+            bucketScale *= 2f;
+            bucket++;
+        }
+
+        Sprite sprite = sSprites[type.ordinal()][bucket];
+        if (sprite == null) {
+            sprite = produceSprite(RipplePathFactory.obtainPath(type), bucketScale);
+            sSprites[type.ordinal()][bucket] = sprite;
+        }
+        return sprite == OVERSIZE ? null : sprite;
+    }
+
+    /**
+     * Draw the mask of a ripple shape, see {@link RippleShapeRenderer#draw}.
+     *
+     * @return false if there is no mask for scale, the shape should be drawn as path then.
+     */
+    static boolean drawSprite(RippleCompatDrawable.Type type, Canvas canvas, Paint paint, float x, float y,
+                              float scale, float degree) {
+        Sprite sprite = obtainSprite(type, scale);
+        if (sprite == null) return false;
+        canvas.save();
+        canvas.translate(x, y);
+        canvas.scale(scale, scale);
+        if (degree != 0f) canvas.rotate(degree);
+        sprite.draw(canvas, paint);
+        canvas.restore();
+        return true;
+    }
+
+    /**
+     * Drop all masks, they would be rasterized again on demand.
+     */
+    public static synchronized void clearCache() {
+        for (Sprite[] sprites : sSprites) {
+            for (int i = 0; i < sprites.length; i++) {
+                sprites[i] = null;
+            }
+        }
+        sCacheDensity = 0f;
+    }
+
+    private static Sprite produceSprite(Path path, float scale) {
+        RectF bound = new RectF();
+        path.computeBounds(bound, true);
+        int left = (int) Math.floor(bound.left * scale) - BORDER;
+        int top = (int) Math.floor(bound.top * scale) - BORDER;
+        int width = (int) Math.ceil(bound.right * scale) + BORDER - left;
+        int height = (int) Math.ceil(bound.bottom * scale) + BORDER - top;
+        if (width > MAX_SPRITE_SIZE || height > MAX_SPRITE_SIZE) return OVERSIZE;
+
+        Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mask);
+        canvas.translate(-left, -top);
+        canvas.scale(scale, scale);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.FILL);
+        canvas.drawPath(path, paint);
+        return new Sprite(mask, left, top, scale);
+    }
+
+    /**
+     * Measure how far sprite rendering of a shape is from path rendering.
+     *
+     * @param type  ripple shape type.
+     * @param scale scale of the ripple path.
+     * @return mean absolute alpha difference per pixel, from 0 (identical) to 1. -1 if there is no mask for scale.
+     */
+    public static float measureDifference(RippleCompatDrawable.Type type, float scale) {
+        Sprite sprite = obtainSprite(type, scale);
+        if (sprite == null) return -1f;
+        Path path = RipplePathFactory.obtainPath(type);
+        RectF bound = new RectF();
+        path.computeBounds(bound, true);
+        int left = (int) Math.floor(bound.left * scale) - BORDER;
+        int top = (int) Math.floor(bound.top * scale) - BORDER;
+        int width = (int) Math.ceil(bound.right * scale) + BORDER - left;
+        int height = (int) Math.ceil(bound.bottom * scale) + BORDER - top;
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        Bitmap expected = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(expected);
+        canvas.translate(-left, -top);
+        canvas.scale(scale, scale);
+        canvas.drawPath(path, paint);
+
+        Bitmap actual = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        canvas = new Canvas(actual);
+        canvas.translate(-left, -top);
+        canvas.scale(scale, scale);
+        sprite.draw(canvas, paint);
+
+        int[] expectedPixels = new int[width * height];
+        int[] actualPixels = new int[width * height];
+        expected.getPixels(expectedPixels, 0, width, 0, 0, width, height);
+        actual.getPixels(actualPixels, 0, width, 0, 0, width, height);
+        expected.recycle();
+        actual.recycle();
+
+        long sum = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            sum += Math.abs(Color.alpha(expectedPixels[i]) - Color.alpha(actualPixels[i]));
+        }
+        return sum / 255f / expectedPixels.length;
+    }
+
+    static final class Sprite {
+        private final Bitmap mask;
+        private final int left;
+        private final int top;
+        private final float scale;
+
+        private Sprite(Bitmap mask, int left, int top, float scale) {
+            this.mask = mask;
+            this.left = left;
+            this.top = top;
+            this.scale = scale;
+        }
+
+        /**
+         * Draw the mask with paint color, canvas is transformed as for drawing the path.
+         */
+        void draw(Canvas canvas, Paint paint) {
+            canvas.scale(1f / scale, 1f / scale);
+            canvas.drawBitmap(mask, left, top, paint);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.desmond.ripple;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Renderer of {@link RippleCompatDrawable.Type#TRIANGLE}. The three precomputed vertices are transformed and
+ * rebuilt into one reused path in view coordinates, so the canvas is never transformed and the path is
+ * rasterized at the size it's drawn. Drawn from masks of {@link RippleSpriteFactory} when sprite mask is
+ * enabled.
+ */
+class RippleTriangleRenderer implements RippleShapeRenderer {
+    /* vertices at scale 1. */
+    private final float[] mVertices = RipplePathFactory.trianglePoints();
+    /* scratch of draw, renderers are only used on the main thread. */
+    private final float[] mPoints = new float[mVertices.length];
+    private final Path mPath = new Path();
+    private final boolean isSpriteMask;
+
+    RippleTriangleRenderer(boolean isSpriteMask) {
+        this.isSpriteMask = isSpriteMask;
+    }
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, float x, float y, float scale, float degree) {
+        if (isSpriteMask && RippleSpriteFactory.drawSprite(RippleCompatDrawable.Type.TRIANGLE, canvas, paint,
+                x, y, scale, degree)) {
+            return;
+        }
+        RippleMath.transformPoints(mVertices, mPoints, x, y, scale, degree);
+        mPath.rewind();
+        RipplePathFactory.addTriangle(mPath, mPoints);
+        canvas.drawPath(mPath, paint);
+    }
+
+    @Override
+    public void getBound(RectF outBound) {
+        RipplePathFactory.obtainPath(RippleCompatDrawable.Type.TRIANGLE).computeBounds(outBound, true);
+    }
+}
@@ -3,8 +3,9 @@ package com.desmond.ripple;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.support.v7.graphics.Palette;
@@ -23,8 +24,10 @@ public class RippleUtil {
     public static final int MAX_RIPPLE_RADIUS = dip2px(200);
     public static final int MIN_RIPPLE_RADIUS = dip2px(30);
     public static final int RIPPLE_DURATION = 400;
+    public static final int RIPPLE_POOL_SIZE = 4;
     public static final int RIPPLE_COLOR = 0xa000ff00;
-    public static final int RIPPLE_BACKGROUND_OFFSET = 56;
+    public static final int RIPPLE_BACKGROUND_OFFSET = RippleMath.BACKGROUND_OFFSET;
+    public static final int PALETTE_SAMPLE_SIZE = 128;
 
     public static final int ET_INSET_TOP_APPCOMPAT = 10;
     public static final int ET_INSET_BOTTOM_APPCOMPAT = 6;
@@ -35,8 +38,17 @@ public class RippleUtil {
     public static final int BTN_INSET_VERTICAL = 5;
     public static final int BTN_INSET_VERTICAL_APPCOMPAT = 6;
 
-    public static final int ANCHOR_START = 1;
-    public static final int ANCHOR_END = -1;
+    public static final int ANCHOR_START = RippleMath.ANCHOR_START;
+    public static final int ANCHOR_END = RippleMath.ANCHOR_END;
+
+    /* max dimension of bitmaps sampled for palette. */
+    private static int sPaletteSampleSize = PALETTE_SAMPLE_SIZE;
+    private static final RippleBitmapPool sSamplePool = new RippleBitmapPool(4);
+    private static final Paint sSamplePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private static RippleColorExtractor sColorExtractor = null;
+    private static int[] sPixelBuffer = null;
+    /* result of RippleMath bound functions, guarded by itself. */
+    private static final int[] sBoundBuffer = new int[4];
 
     public enum PaletteMode{
         DISABLED,
@@ -76,31 +88,15 @@ public class RippleUtil {
     }
 
     public static int alphaColor(int color, int alpha){
-        return (alpha << 24) | 0xffffff & color;
+        return RippleMath.alphaColor(color, alpha);
     }
 
     public static int produceBackgroundColor(int rippleColor){
-        int a = (rippleColor & 0xff000000) >> 24;
-        int r = (rippleColor & 0xff0000) >> 16;
-        int g = (rippleColor & 0xff00) >> 8;
-        int b = rippleColor & 0xff;
-
-        r = makeOffset(r);
-        g = makeOffset(g);
-        b = makeOffset(b);
-
-        return Color.argb(a, r, g, b);
+        return RippleMath.produceBackgroundColor(rippleColor);
     }
 
     public static int makeOffset(int value){
-        int dest = value < 128 ? value + RIPPLE_BACKGROUND_OFFSET : value - RIPPLE_BACKGROUND_OFFSET;
-        if(dest < 0){
-            return  0;
-        }else if(dest > 255){
-            return 255;
-        }else{
-            return dest;
-        }
+        return RippleMath.makeOffset(value);
     }
 
     /**
@@ -112,16 +108,70 @@ public class RippleUtil {
      */
     public static void palette(final RippleCompatDrawable compatDrawable, final Drawable background,
                                final PaletteMode mode){
-        if(mode == PaletteMode.DISABLED || background.getIntrinsicWidth() <= 0
-                || background.getIntrinsicHeight() <= 0)return;
-        Palette.Builder builder = Palette.from(drawable2Bitmap(background));
-        builder.generate(new Palette.PaletteAsyncListener() {
-            @Override
-            public void onGenerated(Palette palette) {
-                int color = getPaletteColor(palette, mode);
-                compatDrawable.setRippleColor(alphaColor(color, 128));
+        palette(compatDrawable, background, 0, mode);
+    }
+
+    /**
+     * set ripple color with palette of image. Build-time palettes in {@link RipplePaletteTable} are used first.
+     * Results are cached in {@link RipplePaletteCache} and, if enabled,
+     * {@link RippleDiskPaletteCache}. Misses are
+     * extracted in background by {@link RipplePaletteLoader}, see {@link RippleCompat#setPaletteExecutor}.
+     *
+     * @param compatDrawable ripple drawable for using
+     * @param background image for palette
+     * @param resId resource id of the image, 0 if unknown.
+     * @param mode palette mode.
+     */
+    public static void palette(final RippleCompatDrawable compatDrawable, final Drawable background,
+                               int resId, final PaletteMode mode){
+        if(mode == PaletteMode.DISABLED || background == null || background.getIntrinsicWidth() <= 0
+                || background.getIntrinsicHeight() <= 0){
+            RipplePaletteLoader.cancel(compatDrawable);
+            return;
+        }
+
+        /* the table is computed by the built-in extractor, support Palette would pick other swatches. */
+        if(resId != 0 && compatDrawable.isBuiltinPalette()){
+            int[] precomputed = RipplePaletteTable.get(resId);
+            if(precomputed != null){
+                RipplePaletteLoader.cancel(compatDrawable);
+                compatDrawable.applyPaletteColors(precomputed);
+                return;
             }
-        });
+        }
+
+        long paletteKey = compatDrawable.getPaletteKey();
+        boolean isBuiltin = compatDrawable.isBuiltinPalette();
+        int[] colors = RipplePaletteCache.get(background, resId, paletteKey, isBuiltin);
+
+        RippleDiskPaletteCache diskCache = RippleDiskPaletteCache.getInstance();
+        long diskKey = diskCache != null ? diskCache.keyOf(paletteKey, resId, isBuiltin) : 0;
+        if(colors == null && diskKey != 0){
+            colors = diskCache.get(diskKey);
+            if(colors != null) RipplePaletteCache.put(RipplePaletteCache.keyOf(background, resId, paletteKey, isBuiltin), colors);
+        }
+
+        if(colors != null){
+            RipplePaletteLoader.cancel(compatDrawable);
+            compatDrawable.applyPaletteColors(colors);
+            return;
+        }
+        RipplePaletteLoader.load(compatDrawable, background, RipplePaletteCache.keyOf(background, resId, paletteKey, isBuiltin), diskKey);
+    }
+
+    /**
+     * Get swatch colors of every palette mode.
+     *
+     * @param palette palette
+     * @return colors indexed by {@link PaletteMode#ordinal()}.
+     */
+    public static int[] getPaletteColors(Palette palette){
+        PaletteMode[] modes = PaletteMode.values();
+        int[] colors = new int[modes.length];
+        for(PaletteMode mode : modes){
+            colors[mode.ordinal()] = getPaletteColor(palette, mode);
+        }
+        return colors;
     }
 
     public static int getPaletteColor(Palette palette, PaletteMode mode){
@@ -144,6 +194,86 @@ public class RippleUtil {
         }
     }
 
+    /**
+     * Get swatch colors of every palette mode with the built-in {@link RippleColorExtractor}.
+     *
+     * @param bitmap downsampled bitmap
+     * @return colors indexed by {@link PaletteMode#ordinal()}.
+     */
+    public static synchronized int[] extractColors(Bitmap bitmap){
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int size = w * h;
+        if(sPixelBuffer == null || sPixelBuffer.length < size){
+            sPixelBuffer = new int[size];
+        }
+        bitmap.getPixels(sPixelBuffer, 0, w, 0, 0, w, h);
+        if(sColorExtractor == null){
+            sColorExtractor = new RippleColorExtractor();
+        }
+        return sColorExtractor.extract(sPixelBuffer, size, RIPPLE_COLOR);
+    }
+
+    /**
+     * Set max dimension of the bitmap a background is downsampled to before palette extraction.
+     *
+     * @param maxDimension max width or height in pixels, default is {@link #PALETTE_SAMPLE_SIZE}.
+     */
+    public static void setPaletteSampleSize(int maxDimension){
+        if(maxDimension <= 0) return;
+        sPaletteSampleSize = maxDimension;
+        sSamplePool.clear();
+    }
+
+    public static int getPaletteSampleSize(){
+        return sPaletteSampleSize;
+    }
+
+    /**
+     * Render drawable into a pooled bitmap whose larger side is no more than maxDimension.
+     * A {@link BitmapDrawable} that already fits is returned without redrawing.
+     * Release the result with {@link #releaseSampleBitmap(Drawable, Bitmap)}.
+     *
+     * @param drawable drawable to sample, must have intrinsic size.
+     * @param maxDimension max width or height of the result.
+     * @return sampled bitmap
+     */
+    public static Bitmap sampleBitmap(final Drawable drawable, int maxDimension){
+        Bitmap source = null;
+        if(drawable instanceof BitmapDrawable){
+            source = ((BitmapDrawable) drawable).getBitmap();
+            if(source != null && Math.max(source.getWidth(), source.getHeight()) <= maxDimension){
+                return source;
+            }
+        }
+
+        int w = drawable.getIntrinsicWidth();
+        int h = drawable.getIntrinsicHeight();
+        float scale = Math.min(1f, (float) maxDimension / Math.max(w, h));
+        int sampleW = Math.max(1, Math.round(w * scale));
+        int sampleH = Math.max(1, Math.round(h * scale));
+
+        Bitmap bitmap = sSamplePool.acquire(sampleW, sampleH);
+        Canvas canvas = new Canvas(bitmap);
+        if(source != null){
+            canvas.drawBitmap(source, null, new Rect(0, 0, sampleW, sampleH), sSamplePaint);
+        }else{
+            Rect bounds = drawable.copyBounds();
+            drawable.setBounds(0, 0, sampleW, sampleH);
+            drawable.draw(canvas);
+            drawable.setBounds(bounds);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Give back a bitmap got from {@link #sampleBitmap(Drawable, int)}.
+     */
+    public static void releaseSampleBitmap(Drawable drawable, Bitmap sample){
+        if(drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() == sample) return;
+        sSamplePool.release(sample);
+    }
+
     public static Bitmap drawable2Bitmap(final Drawable drawable){
         Bitmap bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(),
                 drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
@@ -163,81 +293,55 @@ public class RippleUtil {
      * @return Bound
      */
     public static Rect getBound(ImageView.ScaleType scaleType, Rect bound, int w, int h){
-        int l = bound.left;
-        int t = bound.top;
-        int r = bound.right;
-        int b = bound.bottom;
+        return getBound(scaleType, bound, w, h, new Rect());
+    }
 
-        if(bound.width() == w && bound.height() == h){
-            return new Rect(l, t, r, b);
+    /**
+     * Get image bound after scaleType without allocation.
+     *
+     * @param scaleType scale type of image.
+     * @param bound     bound of container.
+     * @param w         image width.
+     * @param h         image height.
+     * @param outBound  rect to set, may be bound itself.
+     * @return outBound
+     */
+    public static Rect getBound(ImageView.ScaleType scaleType, Rect bound, int w, int h, Rect outBound){
+        synchronized (sBoundBuffer){
+            RippleMath.getBound(scaleModeOf(scaleType), bound.left, bound.top, bound.right, bound.bottom, w, h,
+                    sBoundBuffer);
+            outBound.set(sBoundBuffer[0], sBoundBuffer[1], sBoundBuffer[2], sBoundBuffer[3]);
         }
+        return outBound;
+    }
 
-        float scale;
+    /**
+     * @return scale mode of {@link RippleMath} for scaleType.
+     */
+    public static int scaleModeOf(ImageView.ScaleType scaleType){
         switch (scaleType){
+            case MATRIX:
+                return RippleMath.MATRIX;
+            case FIT_START:
+                return RippleMath.FIT_START;
+            case FIT_CENTER:
+                return RippleMath.FIT_CENTER;
+            case FIT_END:
+                return RippleMath.FIT_END;
             case CENTER:
-                return center(bound, w, h);
-
+                return RippleMath.CENTER;
             case CENTER_CROP:
-
-                if(compareScale(bound, w, h) >= 0){
-                    scale = (float)bound.width() / w;
-                }else{
-                    scale = (float)bound.height() / h;
-                }
-                return center(bound, w, h, scale);
-
+                return RippleMath.CENTER_CROP;
             case CENTER_INSIDE:
-                if(bound.width() >= w && bound.height() >= h){
-                    return center(bound, w, h);
-                }
-
-                if(compareScale(bound, w, h) >= 0){
-                    scale = (float)bound.height() / h;
-                }else{
-                    scale = (float)bound.width() / w;
-                }
-                return center(bound, w, h, scale);
-
-            case FIT_END:
-                if(compareScale(bound, w, h) >= 0){
-                    scale = (float)bound.height() / h;
-                }else{
-                    scale = (float)bound.width() / w;
-                }
-                return center(bound, w, h, scale, ANCHOR_END);
-
-            case FIT_START:
-                if(compareScale(bound, w, h) >= 0){
-                    scale = (float)bound.height() / h;
-                }else{
-                    scale = (float)bound.width() / w;
-                }
-                return center(bound, w, h, scale, ANCHOR_START);
-
-            case FIT_CENTER:
-                if(compareScale(bound, w, h) >= 0){
-                    scale = (float)bound.height() / h;
-                }else{
-                    scale = (float)bound.width() / w;
-                }
-                return center(bound, w, h, scale);
-
-            case MATRIX:
-                r = l + w;
-                b = t + h;
-                break;
-
+                return RippleMath.CENTER_INSIDE;
             case FIT_XY:
             default:
-                break;
+                return RippleMath.FIT_XY;
         }
-
-        return new Rect(l, t, r, b);
     }
 
     public static int compareScale(Rect rect, int w, int h){
-        return Float.compare(rect.width() / (float) rect.height(),
-                w / (float) h);
+        return RippleMath.compareScale(rect.width(), rect.height(), w, h);
     }
 
     public static Rect center(Rect rect, int w, int h){
@@ -249,21 +353,20 @@ public class RippleUtil {
     }
 
     public static Rect center(Rect rect, int w, int h, float scale, int anchor){
-        w = (int)(w * scale);
-        h = (int)(h * scale);
-
-        int left = rect.left + (rect.width() - w) / 2;
-        int top = rect.top + (rect.height() - h) / 2;
-        int right = left + w;
-        int bottom = top + h;
-
-        int offset = 0;
-        if(anchor == ANCHOR_START){
-            offset = rect.left - left;
-        }else if(anchor == ANCHOR_END){
-            offset = rect.width() - w - left;
-        }
+        return center(rect, w, h, scale, anchor, new Rect());
+    }
 
-        return new Rect(left+offset, top, right + offset, bottom);
+    /**
+     * Center a w * h area scaled by scale in rect without allocation.
+     *
+     * @param outRect rect to set, may be rect itself.
+     * @return outRect
+     */
+    public static Rect center(Rect rect, int w, int h, float scale, int anchor, Rect outRect){
+        synchronized (sBoundBuffer){
+            RippleMath.center(rect.left, rect.top, rect.right, rect.bottom, w, h, scale, anchor, sBoundBuffer);
+            outRect.set(sBoundBuffer[0], sBoundBuffer[1], sBoundBuffer[2], sBoundBuffer[3]);
+        }
+        return outRect;
     }
 }
@@ -0,0 +1,160 @@
+package com.desmond.ripple;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+
+/**
+ * Counts allocations made by library code on one thread, recorded by the java-allocation-instrumenter agent
+ * the unit tests run with, see build.gradle.
+ * <p>
+ * The agent's {@code AllocationRecorder} may be loaded twice, by the system class loader for JDK classes and by
+ * Robolectric's class loader for library classes, so a sampler is added to every copy through reflection.
+ * An allocation is attributed to the nearest caller outside the JDK: it's counted if that is a library class,
+ * and ignored for Android, Robolectric and test classes.
+ */
+class RippleAllocationCounter {
+    private static final String RECORDER_PACKAGE = "com.google.monitoring.runtime.instrumentation.";
+    private static final String RECORDER = RECORDER_PACKAGE + "AllocationRecorder";
+    private static final String SAMPLER = RECORDER_PACKAGE + "Sampler";
+    private static final String[] TRANSPARENT_PREFIXES = {
+            "java.", "javax.", "sun.", "com.sun.", "jdk.", RippleAllocationCounter.class.getName()
+    };
+    private static final int MAX_REPORTED = 20;
+
+    private final ArrayList<String> mAllocations = new ArrayList<>();
+    private Thread mThread;
+    private volatile boolean isRecording = false;
+    /* true while sampling, allocations of the sampler itself are not recorded. */
+    private boolean isSampling = false;
+    private int mCount = 0;
+    /* last object sampled on the recorded thread, only kept to check the agent works. */
+    private Object mLastSampled;
+
+    /**
+     * @return true if the agent is attached and records allocations of this thread.
+     */
+    boolean install() {
+        boolean isInstalled = false;
+        ArrayList<Class<?>> recorders = new ArrayList<>();
+        ClassLoader[] loaders = {ClassLoader.getSystemClassLoader(), RippleAllocationCounter.class.getClassLoader()};
+        for (ClassLoader loader : loaders) {
+            try {
+                Class<?> recorder = Class.forName(RECORDER, true, loader);
+                if (recorders.contains(recorder)) continue;
+                recorders.add(recorder);
+                Class<?> samplerClass = Class.forName(SAMPLER, true, loader);
+                Object sampler = Proxy.newProxyInstance(samplerClass.getClassLoader(), new Class<?>[]{samplerClass},
+                        new SamplerHandler());
+                recorder.getMethod("addSampler", samplerClass).invoke(null, sampler);
+                isInstalled = true;
+            } catch (ClassNotFoundException e) {
+                /* not on this loader. */
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (!isInstalled) return false;
+
+        /* the agent may be on the class path without instrumenting, check it samples an allocation made here. */
+        start();
+        int[] canary = new int[1];
+        stop();
+        boolean isCanarySampled = mLastSampled == canary;
+        mLastSampled = null;
+        return isCanarySampled;
+    }
+
+    void start() {
+        mAllocations.clear();
+        mCount = 0;
+        mLastSampled = null;
+        mThread = Thread.currentThread();
+        isRecording = true;
+    }
+
+    void stop() {
+        isRecording = false;
+    }
+
+    /**
+     * @return count of library allocations between last start and stop.
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return type and allocation site of the first recorded allocations.
+     */
+    String describe() {
+        StringBuilder builder = new StringBuilder(mCount + " allocations");
+        for (String allocation : mAllocations) {
+            builder.append("\n    ").append(allocation);
+        }
+        return builder.toString();
+    }
+
+    private void sample(String desc, Object newObj) {
+        if (!isRecording || isSampling || Thread.currentThread() != mThread) return;
+        isSampling = true;
+        try {
+            mLastSampled = newObj;
+            StackTraceElement site = findSite(new Throwable().getStackTrace());
+            if (site == null || !isLibraryClass(site.getClassName())) return;
+            mCount++;
+            if (mAllocations.size() < MAX_REPORTED) mAllocations.add(desc + " at " + site);
+        } finally {
+            isSampling = false;
+        }
+    }
+
+    /**
+     * @return nearest caller of the recorder outside the JDK, null if the allocation was made while another copy
+     * of the recorder called its samplers, e.g. boxing arguments of a sampler proxy.
+     */
+    private static StackTraceElement findSite(StackTraceElement[] stack) {
+        int recorderCount = 0;
+        boolean isInRecorder = false;
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            boolean isRecorder = className.startsWith(RECORDER_PACKAGE);
+            if (isRecorder && !isInRecorder && ++recorderCount > 1) return null;
+            isInRecorder = isRecorder;
+            if (!isRecorder && recorderCount > 0 && !isTransparent(className)) return element;
+        }
+        return null;
+    }
+
+    private static boolean isTransparent(String className) {
+        for (String prefix : TRANSPARENT_PREFIXES) {
+            if (className.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isLibraryClass(String className) {
+        if (!className.startsWith("com.desmond.ripple.")) return false;
+        int end = className.indexOf('$');
+        String outerName = end < 0 ? className : className.substring(0, end);
+        return !outerName.endsWith("Test");
+    }
+
+    /**
+     * Implements {@code Sampler.sampleAllocation(int count, String desc, Object newObj, long size)}.
+     */
+    private class SamplerHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("sampleAllocation".equals(method.getName())) {
+                sample((String) args[1], args[2]);
+                return null;
+            }
+            if ("hashCode".equals(method.getName())) return System.identityHashCode(proxy);
+            if ("equals".equals(method.getName())) return proxy == args[0];
+            if ("toString".equals(method.getName())) return "RippleAllocationCounter sampler";
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.desmond.ripple;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the allocation free hot paths: once warmed up, a whole press, move, release and fade cycle, stepped by
+ * a {@link RippleManualFrameSource} and drawn every frame, must not allocate in library code.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RippleAllocationTest {
+    private static final int SIZE = 200;
+    private static final int PRESSED_FRAMES = 10;
+    private static final int MOVE_COUNT = 10;
+    /* a cycle fades out long before, guards against a ripple that never finishes. */
+    private static final int MAX_FRAMES = 1000;
+
+    private final RippleAllocationCounter mCounter = new RippleAllocationCounter();
+    private RippleManualFrameSource mFrames;
+    private RippleCompatDrawable mDrawable;
+    private View mHost;
+    private Canvas mCanvas;
+    private MotionEvent mEvent;
+    private int mFinishCount = 0;
+
+    @Before
+    public void setUp() {
+        assertTrue("allocation agent not attached, see build.gradle", mCounter.install());
+
+        mFrames = new RippleManualFrameSource();
+        RippleConfig config = new RippleConfig();
+        config.setFrameSource(mFrames);
+        mDrawable = new RippleCompatDrawable(config);
+        mDrawable.setBounds(0, 0, SIZE, SIZE);
+        mDrawable.setCallback(new NoOpCallback());
+        mDrawable.addOnFinishListener(new RippleCompatDrawable.OnFinishListener() {
+            @Override
+            public void onFinish() {
+                mFinishCount++;
+            }
+        });
+        mHost = new View(RuntimeEnvironment.application);
+        mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        mEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+    }
+
+    @Test
+    public void counterSeesLibraryAllocations() {
+        mCounter.start();
+        RipplePool pool = new RipplePool(2);
+        mCounter.stop();
+        /* state arrays of the pool, the pool itself is allocated by this test and not counted. */
+        assertTrue(mCounter.describe(), mCounter.getCount() > 1);
+        assertEquals(2, pool.size);
+    }
+
+    @Test
+    public void cycleDoesNotAllocateAfterWarmUp() {
+        runCycle();
+        assertEquals(1, mFinishCount);
+
+        mCounter.start();
+        runCycle();
+        mCounter.stop();
+        assertEquals(mCounter.describe(), 0, mCounter.getCount());
+        assertEquals(2, mFinishCount);
+    }
+
+    @Test
+    public void repeatedCyclesDoNotAllocateAfterWarmUp() {
+        runCycle();
+
+        mCounter.start();
+        for (int i = 0; i < 5; i++) {
+            runCycle();
+        }
+        mCounter.stop();
+        assertEquals(mCounter.describe(), 0, mCounter.getCount());
+        assertEquals(6, mFinishCount);
+    }
+
+    private void runCycle() {
+        touch(MotionEvent.ACTION_DOWN, SIZE / 4, SIZE / 4);
+        stepFrames(PRESSED_FRAMES);
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            touch(MotionEvent.ACTION_MOVE, SIZE / 4 + i * 5, SIZE / 4 + i * 3);
+            stepFrames(1);
+        }
+        touch(MotionEvent.ACTION_UP, SIZE / 4 + MOVE_COUNT * 5, SIZE / 4 + MOVE_COUNT * 3);
+        for (int i = 0; i < MAX_FRAMES && mDrawable.isRunning(); i++) {
+            stepFrames(1);
+        }
+    }
+
+    private void touch(int action, float x, float y) {
+        mEvent.setAction(action);
+        mEvent.setLocation(x, y);
+        mDrawable.onTouch(mHost, mEvent);
+    }
+
+    private void stepFrames(int count) {
+        for (int i = 0; i < count; i++) {
+            mFrames.step(RippleUtil.FRAME_INTERVAL);
+            mDrawable.draw(mCanvas);
+        }
+    }
+
+    private static class NoOpCallback implements Drawable.Callback {
+        @Override
+        public void invalidateDrawable(Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    }
+}
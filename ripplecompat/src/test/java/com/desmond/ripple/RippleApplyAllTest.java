@@ -0,0 +1,62 @@
+package com.desmond.ripple;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * {@link RippleCompat#applyAll(android.view.ViewGroup, RippleConfig, Class[])} with a background resource.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RippleApplyAllTest {
+    private LinearLayout mRoot;
+    private View mSmall;
+    private View mLarge;
+
+    @Before
+    public void setUp() {
+        RippleCompat.init(RuntimeEnvironment.application);
+        mRoot = new LinearLayout(RuntimeEnvironment.application);
+        mSmall = new View(RuntimeEnvironment.application);
+        mLarge = new View(RuntimeEnvironment.application);
+        mRoot.addView(mSmall, new LinearLayout.LayoutParams(100, 50));
+        mRoot.addView(mLarge, new LinearLayout.LayoutParams(300, 200));
+    }
+
+    @Test
+    public void viewsOfDifferentSizesDrawOwnBackgrounds() {
+        RippleConfig config = new RippleConfig();
+        config.setBackgroundResource(android.R.drawable.ic_menu_add);
+        RippleCompat.ApplyResult result = RippleCompat.applyAll(mRoot, config, View.class);
+        assertEquals(2, result.getAppliedCount());
+
+        mRoot.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.EXACTLY));
+        mRoot.layout(0, 0, 400, 200);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888));
+        mSmall.draw(canvas);
+        mLarge.draw(canvas);
+
+        Drawable small = RippleCompat.getRippleDrawable(mSmall).getBackgroundDrawable();
+        Drawable large = RippleCompat.getRippleDrawable(mLarge).getBackgroundDrawable();
+        assertNotNull(small);
+        assertNotNull(large);
+        assertNotSame(small, large);
+        assertFalse(small.getBounds() + " " + large.getBounds(), small.getBounds().equals(large.getBounds()));
+    }
+}
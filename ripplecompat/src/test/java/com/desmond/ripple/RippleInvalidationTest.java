@@ -0,0 +1,95 @@
+package com.desmond.ripple;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Partial invalidation of ripple frames: the dirty rect must cover every pixel that changed.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RippleInvalidationTest {
+    private static final int SIZE = 400;
+    private static final int FIRST = 40;
+    private static final int SECOND = 360;
+    private static final int PRESSED_FRAMES = 10;
+
+    private RippleManualFrameSource mFrames;
+    private RippleCompatDrawable mDrawable;
+    private RecordingView mHost;
+
+    @Before
+    public void setUp() {
+        mFrames = new RippleManualFrameSource();
+        RippleConfig config = new RippleConfig();
+        config.setFrameSource(mFrames);
+        config.setMaxRippleCount(1);
+        /* no background tint, it would invalidate the whole drawable. */
+        config.setRippleColor(Color.TRANSPARENT);
+        mDrawable = new RippleCompatDrawable(config);
+        mDrawable.setBounds(0, 0, SIZE, SIZE);
+        mHost = new RecordingView(RuntimeEnvironment.application);
+        mDrawable.setCallback(mHost);
+    }
+
+    @Test
+    public void evictedRippleIsInvalidated() {
+        mDrawable.pressPointer(0, FIRST, FIRST);
+        stepFrames(PRESSED_FRAMES);
+
+        mHost.dirty.setEmpty();
+        /* the pool holds one ripple, the first one is evicted. */
+        mDrawable.pressPointer(1, SECOND, SECOND);
+        stepFrames(1);
+        assertTrue(mHost.dirty.toShortString(), mHost.dirty.contains(SECOND, SECOND));
+        assertTrue(mHost.dirty.toShortString(), mHost.dirty.contains(FIRST, FIRST));
+    }
+
+    @Test
+    public void secondFrameInvalidatesOnlyTheRemainingRipple() {
+        mDrawable.pressPointer(0, FIRST, FIRST);
+        stepFrames(PRESSED_FRAMES);
+        mDrawable.pressPointer(1, SECOND, SECOND);
+        stepFrames(1);
+
+        mHost.dirty.setEmpty();
+        stepFrames(1);
+        assertTrue(mHost.dirty.toShortString(), mHost.dirty.contains(SECOND, SECOND));
+        assertFalse(mHost.dirty.toShortString(), mHost.dirty.contains(FIRST, FIRST));
+    }
+
+    private void stepFrames(int count) {
+        for (int i = 0; i < count; i++) {
+            mFrames.step(RippleUtil.FRAME_INTERVAL);
+        }
+    }
+
+    /**
+     * Records the union of partial invalidations.
+     */
+    private static class RecordingView extends View {
+        final Rect dirty = new Rect();
+
+        RecordingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            dirty.union(l, t, r, b);
+            super.invalidate(l, t, r, b);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.desmond.ripple;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * How {@link RippleCompat} scales with the count of rippled views on a headless JVM. For N views in rows of a
+ * layout attached to an activity, it reports the cost of applying ripples, of a full layout pass without and
+ * with ripples, of one frame of N running ripples started by a storm of synthetic touches, and the heap
+ * retained per view. A cost per view growing with N is super-linear behavior.
+ * <p>
+ * Robolectric's shadows are not the device, compare the results against each other, not with frame budgets.
+ * Results are logged under the class name. Skipped unless enabled, the allocation agent of the unit tests is
+ * not attached then:
+ * {@code ./gradlew :ripplecompat:testDebugUnitTest -PrippleBenchmark}
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RippleScalingBenchmark {
+    private static final String TAG = "RippleScalingBenchmark";
+    private static final int[] VIEW_COUNTS = {10, 100, 1000, 10000};
+    private static final int COLUMNS = 10;
+    private static final int WIDTH = 1080;
+    private static final int ROW_HEIGHT = 48;
+    private static final int LAYOUT_PASSES = 5;
+    private static final int TICKS = 30;
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("run with -PrippleBenchmark", Boolean.getBoolean("ripple.benchmark"));
+        ShadowLog.stream = System.out;
+        mActivity = Robolectric.buildActivity(Activity.class).create().start().resume().visible().get();
+        RippleCompat.init(mActivity);
+    }
+
+    @Test
+    public void scaling() {
+        Log.i(TAG, "views  apply/view(us)  layout plain(ms)  layout rippled(ms)  tick(ms)"
+                + "  tick/ripple(us)  draw(ms)  heap/view(B)");
+        /* warm up class loading and shadows with the smallest size. */
+        run(VIEW_COUNTS[0]);
+        for (int count : VIEW_COUNTS) {
+            Log.i(TAG, run(count));
+        }
+    }
+
+    private String run(int count) {
+        LinearLayout root = createLayout(count);
+        mActivity.setContentView(root);
+        int height = count / COLUMNS * ROW_HEIGHT;
+        long plainLayoutNanos = layout(root, height);
+
+        long heapBefore = usedHeap();
+        RippleManualFrameSource frames = new RippleManualFrameSource();
+        RippleConfig config = new RippleConfig();
+        config.setFrameSource(frames);
+        long start = System.nanoTime();
+        for (int i = 0; i < root.getChildCount(); i++) {
+            ViewGroup row = (ViewGroup) root.getChildAt(i);
+            for (int j = 0; j < row.getChildCount(); j++) {
+                RippleCompat.apply(row.getChildAt(j), config);
+            }
+        }
+        long applyNanos = System.nanoTime() - start;
+        long heapPerView = (usedHeap() - heapBefore) / count;
+        long rippledLayoutNanos = layout(root, height);
+
+        /* views set bounds of their backgrounds when drawn, a ripple only starts inside them. */
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, ROW_HEIGHT, Bitmap.Config.ARGB_8888));
+        root.draw(canvas);
+        /* a touch storm, every view is pressed at once. */
+        dispatchToAll(root, MotionEvent.ACTION_DOWN);
+        assertEquals("running ripples", count, countRunning(root));
+        start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            frames.step(RippleUtil.FRAME_INTERVAL);
+        }
+        long tickNanos = (System.nanoTime() - start) / TICKS;
+
+        start = System.nanoTime();
+        root.draw(canvas);
+        long drawNanos = System.nanoTime() - start;
+        dispatchToAll(root, MotionEvent.ACTION_CANCEL);
+        frames.step(60, RippleUtil.FRAME_INTERVAL);
+
+        return String.format("%5d  %14.1f  %16.2f  %18.2f  %8.2f  %15.2f  %8.2f  %12d", count,
+                applyNanos / 1000f / count, plainLayoutNanos / 1e6f, rippledLayoutNanos / 1e6f, tickNanos / 1e6f,
+                tickNanos / 1000f / count, drawNanos / 1e6f, heapPerView);
+    }
+
+    /**
+     * @return rows of COLUMNS clickable cells, every other cell has a background of its own.
+     */
+    private LinearLayout createLayout(int count) {
+        LinearLayout root = new LinearLayout(mActivity);
+        root.setOrientation(LinearLayout.VERTICAL);
+        for (int i = 0; i < count / COLUMNS; i++) {
+            LinearLayout row = new LinearLayout(mActivity);
+            for (int j = 0; j < COLUMNS; j++) {
+                View cell = new View(mActivity);
+                cell.setClickable(true);
+                if (j % 2 == 0) cell.setBackgroundColor(Color.LTGRAY);
+                row.addView(cell, new LinearLayout.LayoutParams(0, ROW_HEIGHT, 1f));
+            }
+            root.addView(row, new LinearLayout.LayoutParams(WIDTH, ROW_HEIGHT));
+        }
+        return root;
+    }
+
+    /**
+     * @return mean time of a layout pass measuring and laying out every view.
+     */
+    private static long layout(ViewGroup root, int height) {
+        long total = 0;
+        for (int i = 0; i < LAYOUT_PASSES; i++) {
+            forceLayout(root);
+            long start = System.nanoTime();
+            root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            root.layout(0, 0, WIDTH, height);
+            total += System.nanoTime() - start;
+        }
+        return total / LAYOUT_PASSES;
+    }
+
+    private static void forceLayout(View v) {
+        v.forceLayout();
+        if (!(v instanceof ViewGroup)) return;
+        ViewGroup group = (ViewGroup) v;
+        for (int i = 0; i < group.getChildCount(); i++) {
+            forceLayout(group.getChildAt(i));
+        }
+    }
+
+    private static void dispatchToAll(ViewGroup root, int action) {
+        MotionEvent event = MotionEvent.obtain(0, 0, action, 5, 5, 0);
+        for (int i = 0; i < root.getChildCount(); i++) {
+            ViewGroup row = (ViewGroup) root.getChildAt(i);
+            for (int j = 0; j < row.getChildCount(); j++) {
+                row.getChildAt(j).dispatchTouchEvent(event);
+            }
+        }
+        event.recycle();
+    }
+
+    private static int countRunning(ViewGroup root) {
+        int count = 0;
+        for (int i = 0; i < root.getChildCount(); i++) {
+            ViewGroup row = (ViewGroup) root.getChildAt(i);
+            for (int j = 0; j < row.getChildCount(); j++) {
+                RippleCompatDrawable drawable = RippleCompat.getRippleDrawable(row.getChildAt(j));
+                if (drawable != null && drawable.isRunning()) count++;
+            }
+        }
+        return count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}